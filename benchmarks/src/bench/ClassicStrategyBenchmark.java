@@ -0,0 +1,52 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import model.SolvedTableAI;
+import model.TicTacToeGame;
+import model.TicTacToeStrategy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * desiredCell on the classic board for every strategy, including those that
+ * only play 3x3 well, from the empty board and from each number of moves in.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassicStrategyBenchmark {
+
+  @Param({ "0", "2", "4", "6" })
+  public int movesPlayed;
+
+  @Param({ "Random", "Stopper", "Negamax", "SolvedTable" })
+  public String strategy;
+
+  private TicTacToeGame position;
+  private TicTacToeStrategy ai;
+
+  @Setup
+  public void setUp() {
+    position = Positions.play("3x3k3", Positions.randomMoves("3x3k3", movesPlayed / 9.0, 1));
+    ai = strategy.equals("SolvedTable") ? new SolvedTableAI() : StrategyBenchmark.create(strategy, true);
+  }
+
+  @Benchmark
+  public int desiredCell() {
+    return ai.desiredCell(position);
+  }
+}
@@ -0,0 +1,81 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import model.TicTacToeGame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The per-move cost of TicTacToeGame: choose() and the end of game checks
+ * that every caller makes after it, on boards of several sizes and fill
+ * levels.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+  @Param({ "3x3k3", "5x5k4", "7x7k5", "15x15k5" })
+  public String shape;
+
+  @Param({ "0.0", "0.5", "0.9" })
+  public double fill;
+
+  private int[] moves;
+  private TicTacToeGame position;
+  private TicTacToeGame replay;
+
+  @Setup
+  public void setUp() {
+    moves = Positions.randomMoves(shape, fill, 1);
+    position = Positions.play(shape, moves);
+    replay = Positions.newGame(shape);
+  }
+
+  // Start over and play every move of the position; divide by the move
+  // count for the cost of one choose()
+  @Benchmark
+  public TicTacToeGame replayMoves() {
+    replay.startNewGame();
+    int cols = replay.cols();
+    for (int cell : moves)
+      replay.choose(cell / cols, cell % cols);
+    return replay;
+  }
+
+  @Benchmark
+  public void didWin(Blackhole blackhole) {
+    blackhole.consume(position.didWin('X'));
+    blackhole.consume(position.didWin('O'));
+  }
+
+  @Benchmark
+  public boolean stillRunning() {
+    return position.stillRunning();
+  }
+
+  @Benchmark
+  public boolean tied() {
+    return position.tied();
+  }
+
+  @Benchmark
+  public int maxMovesRemaining() {
+    return position.maxMovesRemaining();
+  }
+}
@@ -0,0 +1,113 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import model.TicTacToeGame;
+import persistence.GameLogReader;
+import persistence.GameLogWriter;
+import persistence.GameRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Games per second written to and read back from a GameLog on local disk,
+ * and the cost of the binary form alone. Every iteration starts a new log
+ * in the temp directory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameLogBenchmark {
+
+  private static final int GAMES = 1 << 10;
+  private static final int LOGGED = 1 << 20;
+
+  private final GameRecord[] games = new GameRecord[GAMES];
+  private final ByteBuffer buffer = ByteBuffer.allocate(64);
+  private int next;
+  private Path path;
+  private GameLogWriter writer;
+  private Path readPath;
+  private GameLogReader reader;
+
+  @Setup
+  public void setUp() throws IOException {
+    SplittableRandom random = new SplittableRandom(1);
+    for (int i = 0; i < GAMES; i++) {
+      TicTacToeGame game = new TicTacToeGame();
+      while (game.stillRunning())
+        game.makeMove(game.randomAvailableCell(random));
+      games[i] = GameRecord.of(game);
+    }
+    readPath = Files.createTempFile("bench", ".log");
+    Files.delete(readPath);
+    try (GameLogWriter log = new GameLogWriter(readPath)) {
+      for (int i = 0; i < LOGGED; i++)
+        log.append(games[i & (GAMES - 1)]);
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void openLogs() throws IOException {
+    path = Files.createTempFile("bench", ".log");
+    Files.delete(path);
+    writer = new GameLogWriter(path);
+    reader = new GameLogReader(readPath);
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeLogs() throws IOException {
+    writer.close();
+    reader.close();
+    Files.delete(path);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.delete(readPath);
+  }
+
+  @Benchmark
+  public void append() throws IOException {
+    writer.append(games[next++ & (GAMES - 1)]);
+  }
+
+  @Benchmark
+  public GameRecord read() throws IOException {
+    GameRecord game = reader.read();
+    if (game == null) {
+      // Start over once the log has been read through
+      reader.close();
+      reader = new GameLogReader(readPath);
+      game = reader.read();
+    }
+    return game;
+  }
+
+  @Benchmark
+  public GameRecord encodeAndDecode() {
+    buffer.clear();
+    games[next++ & (GAMES - 1)].encode(buffer);
+    buffer.flip();
+    return GameRecord.decode(buffer);
+  }
+}
@@ -0,0 +1,94 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import model.MoveOrdering;
+import model.NegamaxAI;
+import model.TicTacToeGame;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One NegamaxAI search, from scratch, with each combination of the
+ * MoveOrdering features: to the end of the game on 4x4 two moves in, and
+ * 6 moves ahead on 5x5 four moves in. Every iteration searches the next of
+ * 20 random positions, and the nodes counter is the total number of
+ * positions visited by the 20 searches.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = 1)
+@Measurement(iterations = 20, batchSize = 1)
+@Fork(1)
+public class MoveOrderingBenchmark {
+
+  @Param({ "4x4k4", "5x5k4" })
+  public String shape;
+
+  @Param({ "none", "hash", "static", "hash+static", "hash+killers+static", "all" })
+  public String ordering;
+
+  private int iteration;
+  private TicTacToeGame position;
+  private NegamaxAI ai;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Nodes {
+    public long nodes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      nodes = 0;
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    boolean small = shape.equals("4x4k4");
+    position = Positions.play(shape, Positions.randomMoves(shape, small ? 2 / 16.0 : 4 / 25.0,
+        iteration++ % 20));
+    ai = new NegamaxAI(small ? 16 : 6, 20, features(ordering));
+  }
+
+  static int features(String names) {
+    if (names.equals("none"))
+      return 0;
+    if (names.equals("all"))
+      return MoveOrdering.ALL;
+    int features = 0;
+    for (String name : names.split("\\+")) {
+      if (name.equals("hash"))
+        features |= MoveOrdering.HASH;
+      else if (name.equals("killers"))
+        features |= MoveOrdering.KILLERS;
+      else if (name.equals("history"))
+        features |= MoveOrdering.HISTORY;
+      else if (name.equals("static"))
+        features |= MoveOrdering.STATIC;
+      else
+        throw new IllegalArgumentException(name);
+    }
+    return features;
+  }
+
+  @Benchmark
+  public int search(Nodes counter) {
+    int move = ai.desiredCell(position);
+    counter.nodes += ai.getNodesSearched();
+    return move;
+  }
+}
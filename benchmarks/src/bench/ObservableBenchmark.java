@@ -0,0 +1,66 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import controller.GameEvent;
+import controller.OurObservable;
+import controller.OurObserver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The cost of telling observers about a change, which TicTacToeGame pays
+ * on every move, with and without saying what the change was.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObservableBenchmark {
+
+  @Param({ "0", "1", "2", "8" })
+  public int observers;
+
+  private OurObservable observable;
+  private final GameEvent move = GameEvent.moveMade(4, 1, 1, 'X');
+
+  @Setup
+  public void setUp(final Blackhole blackhole) {
+    observable = new OurObservable();
+    for (int i = 0; i < observers; i++) {
+      final int id = i;
+      observable.addObserver(new OurObserver() {
+        public void update() {
+          blackhole.consume(id);
+        }
+
+        public void update(GameEvent event) {
+          blackhole.consume(event.getCell() + id);
+        }
+      });
+    }
+  }
+
+  @Benchmark
+  public void notifyObservers() {
+    observable.notifyObservers();
+  }
+
+  @Benchmark
+  public void notifyObserversOfMove() {
+    observable.notifyObservers(move);
+  }
+}
@@ -0,0 +1,53 @@
+package bench;
+
+import java.util.Random;
+
+import model.TicTacToeGame;
+
+/**
+ * Builds the positions the benchmarks run on: a board shape written like
+ * "7x7k5", filled to some fraction with random moves that leave the game
+ * still running.
+ *
+ * @author Alex
+ */
+final class Positions {
+
+  private Positions() {
+  }
+
+  static TicTacToeGame newGame(String shape) {
+    String[] parts = shape.split("[xk]");
+    return new TicTacToeGame(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+        Integer.parseInt(parts[2]));
+  }
+
+  /**
+   * @return the cells (r * cols + c) of random moves that fill the given
+   *         fraction of the board without either player winning
+   */
+  static int[] randomMoves(String shape, double fill, long seed) {
+    Random random = new Random(seed);
+    for (int attempt = 0; attempt < 10000; attempt++) {
+      TicTacToeGame game = newGame(shape);
+      int cells = game.rows() * game.cols();
+      int[] moves = new int[(int) Math.min(cells - 1, Math.round(cells * fill))];
+      int played = 0;
+      while (played < moves.length && game.stillRunning()) {
+        int cell = random.nextInt(cells);
+        if (game.choose(cell / game.cols(), cell % game.cols()))
+          moves[played++] = cell;
+      }
+      if (played == moves.length && game.stillRunning())
+        return moves;
+    }
+    throw new IllegalStateException("No running position " + shape + " filled to " + fill);
+  }
+
+  static TicTacToeGame play(String shape, int[] moves) {
+    TicTacToeGame game = newGame(shape);
+    for (int cell : moves)
+      game.choose(cell / game.cols(), cell % game.cols());
+    return game;
+  }
+}
@@ -0,0 +1,75 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import model.MonteCarloAI;
+import model.NegamaxAI;
+import model.RandomAI;
+import model.StopperAI;
+import model.TicTacToeGame;
+import model.TicTacToeStrategy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * desiredCell for every strategy that plays on any board size. The search
+ * strategies are given budgets small enough to finish on the large boards:
+ * NegamaxAI looks 2 moves ahead there and MonteCarloAI plays 200 games on
+ * one thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StrategyBenchmark {
+
+  @Param({ "3x3k3", "5x5k4", "7x7k5", "15x15k5" })
+  public String shape;
+
+  @Param({ "0.0", "0.5" })
+  public double fill;
+
+  @Param({ "Random", "Stopper", "Negamax", "MonteCarlo" })
+  public String strategy;
+
+  private TicTacToeGame position;
+  private TicTacToeStrategy ai;
+
+  @Setup
+  public void setUp() {
+    position = Positions.play(shape, Positions.randomMoves(shape, fill, 1));
+    ai = create(strategy, position.rows() * position.cols() == 9);
+  }
+
+  static TicTacToeStrategy create(String name, boolean classic) {
+    if (name.equals("Random"))
+      return new RandomAI();
+    if (name.equals("Stopper"))
+      return new StopperAI();
+    if (name.equals("Negamax"))
+      return new NegamaxAI(classic ? 9 : 2, 18);
+    if (name.equals("MonteCarlo")) {
+      MonteCarloAI monteCarlo = new MonteCarloAI(Long.MAX_VALUE, 200, 1);
+      monteCarlo.setSeed(1);
+      return monteCarlo;
+    }
+    throw new IllegalArgumentException(name);
+  }
+
+  @Benchmark
+  public int desiredCell() {
+    return ai.desiredCell(position);
+  }
+}
@@ -0,0 +1,88 @@
+package book;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import model.BoardGeometry;
+import model.BoardSymmetry;
+import model.TicTacToeGame;
+import model.TicTacToeStrategy;
+
+/**
+ * Builds an OpeningBook offline by visiting every position up to a number
+ * of moves into the game and asking a strategy, usually a deep search, for
+ * its move in each. Positions that are rotations or reflections of one
+ * already visited are skipped, so the work and the book are about an
+ * eighth of the size they would be otherwise on a square board.
+ *
+ * @author Alex
+ */
+public class BookBuilder {
+
+  private final BoardGeometry geometry;
+  private final BoardSymmetry symmetry;
+  private final int plies;
+  private final TicTacToeStrategy strategy;
+  // Canonical key to the move for it in the canonical frame
+  private final Map<Long, Integer> moves = new HashMap<Long, Integer>();
+
+  /**
+   * @param plies book every position with fewer than this many moves made
+   * @param strategy chooses the move for each position
+   */
+  public BookBuilder(int rows, int cols, int k, int plies, TicTacToeStrategy strategy) {
+    if (plies < 1)
+      throw new IllegalArgumentException("A book needs at least one ply");
+    geometry = BoardGeometry.of(rows, cols, k);
+    symmetry = BoardSymmetry.of(geometry);
+    this.plies = plies;
+    this.strategy = strategy;
+  }
+
+  /**
+   * Search every position not searched yet
+   *
+   * @return the number of positions in the book
+   */
+  public int build() {
+    visit(new TicTacToeGame(geometry.rows(), geometry.cols(), geometry.winLength()));
+    return moves.size();
+  }
+
+  private void visit(TicTacToeGame game) {
+    if (game.getMoveNumber() >= plies || !game.stillRunning())
+      return;
+    long[] hashes = OpeningBook.hashes(symmetry, game);
+    int transform = symmetry.canonicalTransform(hashes);
+    Long key = hashes[transform];
+    if (moves.containsKey(key))
+      return;
+    moves.put(key, symmetry.map(transform, strategy.desiredCell(game)));
+    // unmakeMove puts the open cells back in order, so indexing them is safe
+    for (int i = game.maxMovesRemaining() - 1; i >= 0; i--) {
+      game.makeMove(game.availableCell(i));
+      visit(game);
+      game.unmakeMove();
+    }
+  }
+
+  public int size() {
+    return moves.size();
+  }
+
+  /**
+   * Write the book, sorted for OpeningBook to search
+   */
+  public void write(Path path) throws IOException {
+    long[] keys = new long[moves.size()];
+    int[] cells = new int[moves.size()];
+    int count = 0;
+    for (Map.Entry<Long, Integer> entry : moves.entrySet()) {
+      keys[count] = entry.getKey();
+      cells[count++] = entry.getValue();
+    }
+    OpeningBook.write(path, geometry, keys, cells, count);
+  }
+}
@@ -0,0 +1,53 @@
+package book;
+
+import model.TicTacToeGame;
+import model.TicTacToeStrategy;
+
+/**
+ * Plays the book move when the position is in an OpeningBook and asks
+ * another strategy otherwise, so any strategy can be given a book.
+ *
+ * @author Alex
+ */
+public class BookStrategy implements TicTacToeStrategy {
+
+  private final OpeningBook book;
+  private final TicTacToeStrategy fallback;
+  private long hits;
+  private long misses;
+  // Whether the last move came from the book, which searches nothing
+  private boolean lastFromBook;
+
+  public BookStrategy(OpeningBook book, TicTacToeStrategy fallback) {
+    this.book = book;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public int desiredCell(TicTacToeGame theGame) {
+    int cell = book.lookup(theGame);
+    lastFromBook = cell >= 0;
+    if (lastFromBook) {
+      hits++;
+      return cell;
+    }
+    misses++;
+    return fallback.desiredCell(theGame);
+  }
+
+  // Positions the fallback visited for the last move, 0 for a book move
+  @Override
+  public long getNodesSearched() {
+    return lastFromBook ? 0 : fallback.getNodesSearched();
+  }
+
+  // Moves taken from the book
+  public long getHits() {
+    return hits;
+  }
+
+  // Moves left to the fallback strategy
+  public long getMisses() {
+    return misses;
+  }
+}
@@ -0,0 +1,56 @@
+package book;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import model.BoardGeometry;
+import model.NegamaxAI;
+
+/**
+ * Builds and inspects opening books from the command line:
+ *
+ *    build file rows cols k plies [depth]   search every position with
+ *                                           fewer than plies moves made
+ *                                           depth moves deep (default 6)
+ *    inspect file [count]                   print the board shape, size
+ *                                           and the first count entries
+ *
+ * @author Alex
+ */
+public class BookTool {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length >= 6 && args[0].equals("build"))
+      build(Paths.get(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+          Integer.parseInt(args[4]), Integer.parseInt(args[5]),
+          args.length > 6 ? Integer.parseInt(args[6]) : 6);
+    else if (args.length >= 2 && args[0].equals("inspect"))
+      inspect(Paths.get(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : 20);
+    else {
+      System.err.println("usage: BookTool build file rows cols k plies [depth]");
+      System.err.println("       BookTool inspect file [count]");
+      System.exit(1);
+    }
+  }
+
+  private static void build(Path path, int rows, int cols, int k, int plies, int depth) throws IOException {
+    long start = System.nanoTime();
+    BookBuilder builder = new BookBuilder(rows, cols, k, plies, new NegamaxAI(depth, 20));
+    int size = builder.build();
+    builder.write(path);
+    System.out.printf("%d positions of %dx%d k=%d in %.1f s written to %s%n", size, rows, cols, k,
+        (System.nanoTime() - start) / 1e9, path);
+  }
+
+  private static void inspect(Path path, int count) throws IOException {
+    try (OpeningBook book = new OpeningBook(path)) {
+      BoardGeometry geometry = book.getGeometry();
+      System.out.println(geometry + ", " + book.size() + " positions");
+      for (int i = 0; i < Math.min(count, book.size()); i++) {
+        int move = book.move(i);
+        System.out.printf("%016x  %d,%d%n", book.key(i), geometry.row(move), geometry.col(move));
+      }
+    }
+  }
+}
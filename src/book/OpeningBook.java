@@ -0,0 +1,171 @@
+package book;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import model.BoardGeometry;
+import model.BoardSymmetry;
+import model.TicTacToeGame;
+
+/**
+ * A book of good moves for early positions on one shape of board, read
+ * from a file mapped into memory, so opening a book costs nothing however
+ * big it is and looking a position up is a binary search.
+ *
+ * Positions are keyed by their Zobrist hash in canonical form (the
+ * smallest hash over every BoardSymmetry transform), so a book holds each
+ * position once for all of its rotations and reflections, and its moves
+ * are stored in the canonical frame.
+ *
+ * The file is a header of six ints: "TTTB", the format version, rows,
+ * cols, k and the number of entries, then the entries sorted by key as
+ * unsigned longs, each a long key and an int move.
+ *
+ * @author Alex
+ */
+public class OpeningBook implements Closeable {
+
+  public static final int MAGIC = 0x54545442; // "TTTB"
+  public static final int VERSION = 1;
+  static final int HEADER_SIZE = 24;
+  static final int ENTRY_SIZE = 12;
+
+  private final BoardGeometry geometry;
+  private final BoardSymmetry symmetry;
+  private final int entries;
+  private final FileChannel channel;
+  private MappedByteBuffer data;
+
+  public OpeningBook(Path path) throws IOException {
+    channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE)
+        throw new IOException("Not an opening book");
+      data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (data.getInt(0) != MAGIC)
+        throw new IOException("Not an opening book");
+      if (data.getInt(4) != VERSION)
+        throw new IOException("Unknown opening book version " + data.getInt(4));
+      try {
+        geometry = BoardGeometry.of(data.getInt(8), data.getInt(12), data.getInt(16));
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Bad board in opening book: " + e.getMessage());
+      }
+      symmetry = BoardSymmetry.of(geometry);
+      entries = data.getInt(20);
+      if (entries < 0 || HEADER_SIZE + (long) entries * ENTRY_SIZE > channel.size())
+        throw new IOException("Opening book is cut short");
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public BoardGeometry getGeometry() {
+    return geometry;
+  }
+
+  // The number of positions in the book
+  public int size() {
+    return entries;
+  }
+
+  /**
+   * @return the book move for the player to move in game, or -1 if the
+   *         position is not in the book or the game is another shape
+   */
+  public int lookup(TicTacToeGame game) {
+    if (game.getGeometry() != geometry || !game.stillRunning())
+      return -1;
+    long[] hashes = hashes(symmetry, game);
+    int transform = symmetry.canonicalTransform(hashes);
+    int index = find(hashes[transform]);
+    if (index < 0)
+      return -1;
+    int move = move(index);
+    if (move < 0 || move >= geometry.cells())
+      return -1;
+    int cell = symmetry.unmap(transform, move);
+    return game.available(cell) ? cell : -1;
+  }
+
+  // One hash of game's board per transform
+  static long[] hashes(BoardSymmetry symmetry, TicTacToeGame game) {
+    long[] hashes = symmetry.newHashes();
+    int cells = game.rows() * game.cols();
+    for (int cell = 0; cell < cells; cell++) {
+      if (game.isX(cell + 1))
+        symmetry.place(hashes, 0, cell);
+      else if (game.isO(cell + 1))
+        symmetry.place(hashes, 1, cell);
+    }
+    return hashes;
+  }
+
+  // The index of the entry with key, or -1
+  private int find(long key) {
+    int low = 0;
+    int high = entries - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int compare = Long.compareUnsigned(key(middle), key);
+      if (compare < 0)
+        low = middle + 1;
+      else if (compare > 0)
+        high = middle - 1;
+      else
+        return middle;
+    }
+    return -1;
+  }
+
+  // The key of entry index, in the canonical frame
+  public long key(int index) {
+    return buffer().getLong(HEADER_SIZE + index * ENTRY_SIZE);
+  }
+
+  // The move of entry index, in the canonical frame
+  public int move(int index) {
+    return buffer().getInt(HEADER_SIZE + index * ENTRY_SIZE + 8);
+  }
+
+  private ByteBuffer buffer() {
+    if (data == null)
+      throw new IllegalStateException("Opening book is closed");
+    return data;
+  }
+
+  @Override
+  public void close() throws IOException {
+    data = null;
+    channel.close();
+  }
+
+  /**
+   * Write a book of the given canonical keys and moves, in any order
+   */
+  static void write(Path path, BoardGeometry geometry, long[] keys, int[] moves, int count)
+      throws IOException {
+    Integer[] order = new Integer[count];
+    for (int i = 0; i < count; i++)
+      order[i] = i;
+    Arrays.sort(order, (a, b) -> Long.compareUnsigned(keys[a], keys[b]));
+    try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * ENTRY_SIZE);
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(geometry.rows()).putInt(geometry.cols())
+          .putInt(geometry.winLength()).putInt(count);
+      for (int i : order)
+        buffer.putLong(keys[i]).putInt(moves[i]);
+      buffer.flip();
+      while (buffer.hasRemaining())
+        out.write(buffer);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package controller;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+import model.ComputerPlayer;
+import model.TicTacToeGame;
+
+/**
+ * Lets the computer player choose its move without freezing the GUI. The
+ * strategy searches a copy() of the game on a background thread while the
+ * Swing thread carries on, and the move is played on the Swing thread once
+ * it is known. Observers get a COMPUTER_THINKING event when the search
+ * starts, so views can say so.
+ *
+ * Each move has a time limit. A strategy that is still thinking when it
+ * runs out is cancelled and a random open square is played instead.
+ * cancel() throws away the move being thought about, for when the user
+ * starts a new game.
+ *
+ * Searches run one at a time on a thread of their own, since strategies
+ * keep state between moves. Cancelling interrupts that thread, which
+ * NegamaxAI, IterativeDeepening and MonteCarloAI notice within a few
+ * thousand positions, so the next search is not kept waiting. A strategy
+ * that ignores interrupts delays the next search until it finishes.
+ *
+ * All methods must be called on the Swing thread.
+ *
+ * @author Alex
+ */
+public class ComputerTurn {
+
+  public static final long DEFAULT_TIME_LIMIT_MILLIS = 2000;
+
+  private final TicTacToeGame theGame;
+  private final long timeLimitMillis;
+  private final ExecutorService searcher;
+
+  // The search under way and its deadline, both null when not thinking
+  private SwingWorker<Integer, Void> worker;
+  private Timer deadline;
+  // The game's move number when the search started; a move is only
+  // played if nothing has changed since
+  private int movesAtStart;
+
+  public ComputerTurn(TicTacToeGame theGame) {
+    this(theGame, DEFAULT_TIME_LIMIT_MILLIS);
+  }
+
+  public ComputerTurn(TicTacToeGame theGame, long timeLimitMillis) {
+    if (timeLimitMillis < 1 || timeLimitMillis > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Time limit out of range: " + timeLimitMillis);
+    this.theGame = theGame;
+    this.timeLimitMillis = timeLimitMillis;
+    searcher = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "ComputerTurn");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /*---------------------------------------------
+   * Method: start
+   * Purpose: start the computer player thinking about its move,
+   * unless it already is or the game is over
+   * ----------------------------------------------*/
+  public void start() {
+    if (isThinking() || !theGame.stillRunning())
+      return;
+    final TicTacToeGame position = theGame.copy();
+    final ComputerPlayer player = theGame.getComputerPlayer();
+    movesAtStart = theGame.getMoveNumber();
+
+    final SwingWorker<Integer, Void> search = new SwingWorker<Integer, Void>() {
+      @Override
+      protected Integer doInBackground() {
+        return player.desiredCell(position);
+      }
+
+      @Override
+      protected void done() {
+        if (this != worker || isCancelled())
+          return;
+        int cell = -1;
+        try {
+          cell = get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+          // The strategy failed; play a random move rather than none
+        }
+        finish(cell);
+      }
+    };
+    worker = search;
+    deadline = new Timer((int) timeLimitMillis, event -> {
+      if (search == worker) {
+        search.cancel(true);
+        finish(-1);
+      }
+    });
+    deadline.setRepeats(false);
+
+    theGame.notifyObservers(GameEvent.COMPUTER_THINKING);
+    searcher.execute(search);
+    deadline.start();
+  }
+
+  // Play cell, or a random open square if cell is -1 or not open
+  private void finish(int cell) {
+    deadline.stop();
+    worker = null;
+    deadline = null;
+    if (theGame.getMoveNumber() != movesAtStart || !theGame.stillRunning())
+      return;
+    if (cell < 0 || cell >= theGame.rows() * theGame.cols() || !theGame.available(cell))
+      cell = theGame.randomAvailableCell(ThreadLocalRandom.current());
+    theGame.choose(cell);
+  }
+
+  /**
+   * Stop thinking without moving
+   */
+  public void cancel() {
+    if (worker == null)
+      return;
+    worker.cancel(true);
+    deadline.stop();
+    worker = null;
+    deadline = null;
+  }
+
+  public boolean isThinking() {
+    return worker != null;
+  }
+
+  public long getTimeLimitMillis() {
+    return timeLimitMillis;
+  }
+}
@@ -0,0 +1,100 @@
+package controller;
+
+/**
+ * What changed in a game, passed to OurObserver.update(GameEvent) so that
+ * an observer can change just the square that was taken rather than
+ * redrawing everything and asking the game who won.
+ *
+ *    MOVE_MADE         player took cell (row, col)
+ *    GAME_RESET        every square is empty again
+ *    GAME_OVER         the game ended with result 'X', 'O' or 'T' for a tie
+ *    STRATEGY_CHANGED  the computer player has a new strategy
+ *    COMPUTER_THINKING the computer player has started choosing a move
+ *
+ * Events are immutable. The ones that carry nothing are shared.
+ *
+ * @author Alex
+ */
+public final class GameEvent {
+
+  public enum Type {
+    MOVE_MADE, GAME_RESET, GAME_OVER, STRATEGY_CHANGED, COMPUTER_THINKING
+  }
+
+  public static final GameEvent GAME_RESET = new GameEvent(Type.GAME_RESET, -1, -1, -1, ' ', ' ');
+  public static final GameEvent STRATEGY_CHANGED = new GameEvent(Type.STRATEGY_CHANGED, -1, -1, -1, ' ', ' ');
+  public static final GameEvent COMPUTER_THINKING = new GameEvent(Type.COMPUTER_THINKING, -1, -1, -1, ' ', ' ');
+
+  private final Type type;
+  private final int cell;
+  private final int row;
+  private final int col;
+  private final char player;
+  private final char result;
+
+  private GameEvent(Type type, int cell, int row, int col, char player, char result) {
+    this.type = type;
+    this.cell = cell;
+    this.row = row;
+    this.col = col;
+    this.player = player;
+    this.result = result;
+  }
+
+  public static GameEvent moveMade(int cell, int row, int col, char player) {
+    return new GameEvent(Type.MOVE_MADE, cell, row, col, player, ' ');
+  }
+
+  // result is the winner's char, or 'T' for a tie
+  public static GameEvent gameOver(char result) {
+    return new GameEvent(Type.GAME_OVER, -1, -1, -1, ' ', result);
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * @return true for the events that change the squares, MOVE_MADE and
+   *         GAME_RESET; a GAME_OVER always follows the MOVE_MADE that
+   *         ended the game, so the board it shows is already drawn
+   */
+  public boolean changesBoard() {
+    return type == Type.MOVE_MADE || type == Type.GAME_RESET;
+  }
+
+  // The cell taken by a MOVE_MADE, row * cols + col; -1 otherwise
+  public int getCell() {
+    return cell;
+  }
+
+  public int getRow() {
+    return row;
+  }
+
+  public int getCol() {
+    return col;
+  }
+
+  // 'X' or 'O' for a MOVE_MADE
+  public char getPlayer() {
+    return player;
+  }
+
+  // 'X', 'O' or 'T' for a GAME_OVER
+  public char getResult() {
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    switch (type) {
+    case MOVE_MADE:
+      return type + " " + player + " at " + row + "," + col;
+    case GAME_OVER:
+      return type + " " + result;
+    default:
+      return type.toString();
+    }
+  }
+}
@@ -6,20 +6,216 @@ package controller;
  * @author mercer
 */
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+import metrics.GameMetrics;
+import metrics.LatencyHistogram;
+import metrics.NotifyEvent;
+
+/*
+ * Observers are kept in a copy-on-write set, so they can be added and
+ * removed from any thread, even by an observer while it is being notified.
+ *
+ * By default observers are notified on the caller's thread before
+ * notifyObservers returns. After setDispatchExecutor, notifications are
+ * queued and delivered on that executor instead (EventQueue::invokeLater
+ * delivers them on the Swing thread), one batch at a time and in order.
+ * When a batch has piled up, everything before its last full redraw (a
+ * plain notifyObservers() or a GAME_RESET) is dropped, since that redraw
+ * shows the same board anyway. An observer that throws while a queued
+ * notification is delivered is reported to the delivering thread's
+ * UncaughtExceptionHandler, and the other observers and notifications
+ * are still delivered.
+ *
+ * While GameMetrics is enabled, the time to tell every observer about
+ * each notification is recorded there, on whichever thread delivers it,
+ * and a flight recording gets a tictactoe.Notify event for each.
+ */
 public class OurObservable {
   
-  protected Set<OurObserver> observers = new HashSet<OurObserver>();
+  protected Set<OurObserver> observers = new CopyOnWriteArraySet<OurObserver>();
+
+  // null while notifying on the caller's thread
+  private volatile AsyncDispatch async;
 
   public void addObserver(OurObserver observer) {
     observers.add(observer);
   }
 
+  public void removeObserver(OurObserver observer) {
+    observers.remove(observer);
+  }
+
   public void notifyObservers() {
+    AsyncDispatch dispatch = async;
+    if (dispatch != null) {
+      dispatch.enqueue(null);
+      return;
+    }
     // Out simple Onservable
-    for (OurObserver observer : observers)
-      observer.update();
+    tellObservers(null, false);
+  }
+
+  // Tell every observer what changed
+  public void notifyObservers(GameEvent event) {
+    AsyncDispatch dispatch = async;
+    if (dispatch != null) {
+      dispatch.enqueue(event);
+      return;
+    }
+    tellObservers(event, false);
+  }
+
+  /*---------------------------------------------
+   * Method: tellObservers
+   * Purpose: hand one notification (null for a plain update()) to
+   * every observer, timing it for GameMetrics and the flight recorder
+   * when either is recording
+   * ----------------------------------------------*/
+  private void tellObservers(GameEvent event, boolean queued) {
+    NotifyEvent recorded = new NotifyEvent();
+    recorded.begin();
+    boolean timed = GameMetrics.isEnabled();
+    long start = timed ? System.nanoTime() : 0;
+    int told = 0;
+    for (OurObserver observer : observers) {
+      try {
+        if (event == null)
+          observer.update();
+        else
+          observer.update(event);
+      } catch (RuntimeException e) {
+        // The caller of a synchronous notify sees the exception. A queued
+        // one has no caller to throw to, and the rest of its batch must
+        // still be delivered, so the thread's handler is told instead.
+        if (!queued)
+          throw e;
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+      }
+      told++;
+    }
+    if (timed)
+      GameMetrics.observersNotified(System.nanoTime() - start);
+    if (recorded.shouldCommit()) {
+      recorded.event = event == null ? "UPDATE" : event.getType().name();
+      recorded.observers = told;
+      recorded.queued = queued;
+      recorded.commit();
+    }
+  }
+
+  // Lets a subclass skip building an event no one will see
+  protected boolean hasObservers() {
+    return !observers.isEmpty();
+  }
+
+  /**
+   * Deliver notifications on executor from now on, or on the caller's
+   * thread again if executor is null. Each switch starts the metrics over.
+   */
+  public void setDispatchExecutor(Executor executor) {
+    async = executor == null ? null : new AsyncDispatch(executor);
+  }
+
+  // Notifications waiting to be delivered; 0 when notifying synchronously
+  public int getQueueDepth() {
+    AsyncDispatch dispatch = async;
+    return dispatch == null ? 0 : dispatch.depth.get();
+  }
+
+  public int getMaxQueueDepth() {
+    AsyncDispatch dispatch = async;
+    return dispatch == null ? 0 : dispatch.maxDepth.get();
+  }
+
+  // Notifications dropped because a later one redrew everything
+  public long getCoalesced() {
+    AsyncDispatch dispatch = async;
+    return dispatch == null ? 0 : dispatch.coalesced.sum();
+  }
+
+  /**
+   * @return nanoseconds from queueing each delivered notification to
+   *         handing it to the observers, or null when notifying synchronously
+   */
+  public LatencyHistogram getDispatchLatency() {
+    AsyncDispatch dispatch = async;
+    return dispatch == null ? null : dispatch.latency;
+  }
+
+  // A queued notification; a null event stands for a plain update()
+  private static final class Pending {
+    final GameEvent event;
+    final long queuedAt;
+
+    Pending(GameEvent event, long queuedAt) {
+      this.event = event;
+      this.queuedAt = queuedAt;
+    }
+
+    boolean redrawsEverything() {
+      return event == null || event.getType() == GameEvent.Type.GAME_RESET;
+    }
+  }
+
+  private final class AsyncDispatch {
+    final Executor executor;
+    final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<Pending>();
+    // true while a drain is waiting to run or running, so at most one
+    // runs at a time even on an executor with many threads
+    final AtomicBoolean scheduled = new AtomicBoolean();
+    final AtomicInteger depth = new AtomicInteger();
+    final AtomicInteger maxDepth = new AtomicInteger();
+    final LongAdder coalesced = new LongAdder();
+    final LatencyHistogram latency = new LatencyHistogram();
+
+    AsyncDispatch(Executor executor) {
+      this.executor = executor;
+    }
+
+    void enqueue(GameEvent event) {
+      queue.add(new Pending(event, System.nanoTime()));
+      maxDepth.accumulateAndGet(depth.incrementAndGet(), Math::max);
+      if (scheduled.compareAndSet(false, true))
+        executor.execute(this::drain);
+    }
+
+    private void drain() {
+      do {
+        try {
+          deliver();
+        } finally {
+          scheduled.set(false);
+        }
+      } while (!queue.isEmpty() && scheduled.compareAndSet(false, true));
+    }
+
+    private void deliver() {
+      List<Pending> batch = new ArrayList<Pending>();
+      for (Pending next; (next = queue.poll()) != null;)
+        batch.add(next);
+      depth.addAndGet(-batch.size());
+      int first = 0;
+      for (int i = batch.size() - 1; i > 0; i--)
+        if (batch.get(i).redrawsEverything()) {
+          first = i;
+          break;
+        }
+      coalesced.add(first);
+      for (int i = first; i < batch.size(); i++) {
+        Pending pending = batch.get(i);
+        latency.record(System.nanoTime() - pending.queuedAt);
+        tellObservers(pending.event, true);
+      }
+    }
   }
 }
\ No newline at end of file
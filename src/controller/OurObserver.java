@@ -17,4 +17,17 @@ package controller;
 
 public interface OurObserver {
   public void update();
+
+  /**
+   * Called instead of update() when the observable says what changed.
+   * Observers that only implement update() redraw everything as before,
+   * once per move or new game: events that leave the squares as they were
+   * (GAME_OVER, STRATEGY_CHANGED, COMPUTER_THINKING) do not reach them.
+   *
+   * @param event what changed
+   */
+  public default void update(GameEvent event) {
+    if (event.changesBoard())
+      update();
+  }
 }
@@ -1,5 +1,6 @@
 package controller;
 
+import java.awt.EventQueue;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
@@ -42,6 +43,7 @@ public class TicTacToeGUI extends JFrame {
   }
 
   private TicTacToeGame theGame;
+  private ComputerTurn computerTurn; // shared by both views
   private ButtonView buttonView;
   private TextFieldView textAreaView; // my view
   private JPanel currentView;
@@ -56,8 +58,9 @@ public class TicTacToeGUI extends JFrame {
 
     setupMenus();
     initializeGameForTheFirstTime();
-    buttonView = new ButtonView(theGame, width, height);
-    textAreaView = new TextFieldView(theGame,width,height);
+    computerTurn = new ComputerTurn(theGame);
+    buttonView = new ButtonView(theGame, computerTurn, width, height);
+    textAreaView = new TextFieldView(theGame, computerTurn, width, height);
     addObservers();
     // Set default view
     setViewTo(buttonView);
@@ -71,6 +74,9 @@ public class TicTacToeGUI extends JFrame {
 
   public void initializeGameForTheFirstTime() {
     theGame = new TicTacToeGame();
+    // Views are Swing components, so hand them every change on the Swing
+    // thread, letting bursts of changes collapse into one redraw
+    theGame.setDispatchExecutor(EventQueue::invokeLater);
     // This event driven program will always have
     // a computer player who takes the second turn
     theGame.setComputerPlayerStrategy(new RandomAI());
@@ -134,6 +140,8 @@ public class TicTacToeGUI extends JFrame {
     	  setViewTo(textAreaView);
 
       if (text.equals("New Game")) {
+        // Forget any move the computer is still thinking about
+        computerTurn.cancel();
         theGame.startNewGame(); // The computer player has been set and should not change.
       }
 
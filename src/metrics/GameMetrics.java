@@ -0,0 +1,334 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counts moves, games and results over every game in this JVM, times how
+ * long each strategy takes to choose a move and how long observers take to
+ * be notified. TicTacToeGame, ComputerPlayer and OurObservable record into
+ * it; it can be read with snapshot() or, after registerMBeans(), over JMX:
+ *
+ *    tictactoe:type=Games                 GameMetricsMXBean
+ *    tictactoe:type=Strategy,name=...     a StrategyMetricsMXBean for
+ *                                         each strategy class that has
+ *                                         chosen a move
+ *
+ * Nothing is recorded until setEnabled(true), or -Dtictactoe.metrics=true
+ * on the command line. While it is off every place that records costs one
+ * read of a volatile boolean and nothing else: no clock is read and
+ * nothing is counted.
+ *
+ * @author Alex
+ */
+public final class GameMetrics {
+
+  public static final String DOMAIN = "tictactoe";
+
+  private static volatile boolean enabled = Boolean.getBoolean("tictactoe.metrics");
+
+  private static final LongAdder moves = new LongAdder();
+  private static final LongAdder xWins = new LongAdder();
+  private static final LongAdder oWins = new LongAdder();
+  private static final LongAdder ties = new LongAdder();
+  private static final LatencyHistogram notifyLatency = new LatencyHistogram();
+
+  private static final ConcurrentHashMap<String, StrategyMetrics> strategies = new ConcurrentHashMap<String, StrategyMetrics>();
+  // Saves looking the name up for every move
+  private static final ClassValue<StrategyMetrics> byClass = new ClassValue<StrategyMetrics>() {
+    @Override
+    protected StrategyMetrics computeValue(Class<?> type) {
+      String name = type.getSimpleName();
+      return strategy(name.isEmpty() ? type.getName() : name);
+    }
+  };
+
+  // Set once the MBeans are registered, after which each new strategy's
+  // MBean is registered as soon as it is first seen
+  private static volatile MBeanServer server;
+
+  private GameMetrics() {
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  public static void setEnabled(boolean on) {
+    enabled = on;
+  }
+
+  // Start every count over; the MBeans stay registered
+  public static void reset() {
+    moves.reset();
+    xWins.reset();
+    oWins.reset();
+    ties.reset();
+    notifyLatency.reset();
+    for (StrategyMetrics metrics : strategies.values())
+      metrics.reset();
+  }
+
+  /*---------------------------------------------
+   * The recording side, called only while isEnabled()
+   * ----------------------------------------------*/
+
+  // A move was made in a game
+  public static void moveMade() {
+    moves.increment();
+  }
+
+  // A game ended with result 'X', 'O' or 'T' for a tie
+  public static void gameOver(char result) {
+    if (result == 'X')
+      xWins.increment();
+    else if (result == 'O')
+      oWins.increment();
+    else
+      ties.increment();
+  }
+
+  // strategy took nanos to choose a move, visiting nodesSearched positions
+  public static void moveChosen(Object strategy, long nanos, long nodesSearched) {
+    byClass.get(strategy.getClass()).record(nanos, nodesSearched);
+  }
+
+  // Every observer was told about one change in nanos
+  public static void observersNotified(long nanos) {
+    notifyLatency.record(nanos);
+  }
+
+  /*---------------------------------------------
+   * The reading side
+   * ----------------------------------------------*/
+
+  public static long getMoves() {
+    return moves.sum();
+  }
+
+  public static long getGames() {
+    return getXWins() + getOWins() + getTies();
+  }
+
+  public static long getXWins() {
+    return xWins.sum();
+  }
+
+  public static long getOWins() {
+    return oWins.sum();
+  }
+
+  public static long getTies() {
+    return ties.sum();
+  }
+
+  // Nanoseconds to notify every observer of one change
+  public static LatencyHistogram getNotifyLatency() {
+    return notifyLatency;
+  }
+
+  /**
+   * @return the metrics of the strategy with this class name, which are
+   *         created empty if no such strategy has chosen a move yet
+   */
+  public static StrategyMetrics strategy(String name) {
+    StrategyMetrics metrics = strategies.get(name);
+    if (metrics != null)
+      return metrics;
+    StrategyMetrics created = new StrategyMetrics(name);
+    metrics = strategies.putIfAbsent(name, created);
+    if (metrics != null)
+      return metrics;
+    MBeanServer registered = server;
+    if (registered != null)
+      register(registered, created, strategyName(name));
+    return created;
+  }
+
+  public static Snapshot snapshot() {
+    return new Snapshot();
+  }
+
+  /*---------------------------------------------
+   * Method: registerMBeans
+   * Purpose: publish the metrics with the platform MBean server, so
+   * jconsole and other JMX clients can read them. Calling it again
+   * does nothing.
+   * ----------------------------------------------*/
+  public static synchronized void registerMBeans() {
+    if (server != null)
+      return;
+    MBeanServer platform = ManagementFactory.getPlatformMBeanServer();
+    register(platform, new Bean(), gamesName());
+    server = platform;
+    for (StrategyMetrics metrics : strategies.values())
+      register(platform, metrics, strategyName(metrics.getName()));
+  }
+
+  public static ObjectName strategyName(String strategy) {
+    return name("type=Strategy,name=" + ObjectName.quote(strategy));
+  }
+
+  public static ObjectName gamesName() {
+    return name("type=Games");
+  }
+
+  private static ObjectName name(String properties) {
+    try {
+      return new ObjectName(DOMAIN + ":" + properties);
+    } catch (JMException e) {
+      throw new IllegalArgumentException(properties, e);
+    }
+  }
+
+  private static void register(MBeanServer platform, Object bean, ObjectName name) {
+    try {
+      platform.registerMBean(bean, name);
+    } catch (InstanceAlreadyExistsException e) {
+      // Registered already, by an earlier class loader or a race
+    } catch (JMException e) {
+      throw new IllegalStateException("Can not register " + name, e);
+    }
+  }
+
+  // GameMetrics as an MXBean; the methods are all static
+  private static final class Bean implements GameMetricsMXBean {
+    public boolean isEnabled() {
+      return GameMetrics.isEnabled();
+    }
+
+    public void setEnabled(boolean on) {
+      GameMetrics.setEnabled(on);
+    }
+
+    public long getMoves() {
+      return GameMetrics.getMoves();
+    }
+
+    public long getGames() {
+      return GameMetrics.getGames();
+    }
+
+    public long getXWins() {
+      return GameMetrics.getXWins();
+    }
+
+    public long getOWins() {
+      return GameMetrics.getOWins();
+    }
+
+    public long getTies() {
+      return GameMetrics.getTies();
+    }
+
+    public long getNotifications() {
+      return notifyLatency.getCount();
+    }
+
+    public double getNotifyP50Micros() {
+      return notifyLatency.getPercentile(50) / 1000.0;
+    }
+
+    public double getNotifyP99Micros() {
+      return notifyLatency.getPercentile(99) / 1000.0;
+    }
+
+    public void reset() {
+      GameMetrics.reset();
+    }
+  }
+
+  /**
+   * Every count at one moment, with the strategies in order of name. The
+   * counts are read one after another while games go on, so they can be a
+   * move or two apart from each other, but none changes afterwards.
+   */
+  public static final class Snapshot {
+    private final long moves;
+    private final long xWins;
+    private final long oWins;
+    private final long ties;
+    private final long notifications;
+    private final double notifyP50Micros;
+    private final double notifyP99Micros;
+    private final List<StrategyMetrics.Snapshot> strategies;
+
+    private Snapshot() {
+      moves = GameMetrics.getMoves();
+      xWins = GameMetrics.getXWins();
+      oWins = GameMetrics.getOWins();
+      ties = GameMetrics.getTies();
+      notifications = notifyLatency.getCount();
+      notifyP50Micros = notifyLatency.getPercentile(50) / 1000.0;
+      notifyP99Micros = notifyLatency.getPercentile(99) / 1000.0;
+      List<StrategyMetrics.Snapshot> list = new ArrayList<StrategyMetrics.Snapshot>();
+      for (StrategyMetrics metrics : GameMetrics.strategies.values())
+        list.add(metrics.snapshot());
+      list.sort((a, b) -> a.getName().compareTo(b.getName()));
+      strategies = Collections.unmodifiableList(list);
+    }
+
+    public long getMoves() {
+      return moves;
+    }
+
+    public long getGames() {
+      return xWins + oWins + ties;
+    }
+
+    public long getXWins() {
+      return xWins;
+    }
+
+    public long getOWins() {
+      return oWins;
+    }
+
+    public long getTies() {
+      return ties;
+    }
+
+    public long getNotifications() {
+      return notifications;
+    }
+
+    public double getNotifyP50Micros() {
+      return notifyP50Micros;
+    }
+
+    public double getNotifyP99Micros() {
+      return notifyP99Micros;
+    }
+
+    public List<StrategyMetrics.Snapshot> getStrategies() {
+      return strategies;
+    }
+
+    // The named strategy, or null if it has not chosen a move
+    public StrategyMetrics.Snapshot getStrategy(String name) {
+      for (StrategyMetrics.Snapshot strategy : strategies)
+        if (strategy.getName().equals(name))
+          return strategy;
+      return null;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder result = new StringBuilder(String.format(
+          "moves=%d games=%d xWins=%d oWins=%d ties=%d notifications=%d notifyP50Micros=%.1f notifyP99Micros=%.1f",
+          moves, getGames(), xWins, oWins, ties, notifications, notifyP50Micros, notifyP99Micros));
+      for (StrategyMetrics.Snapshot strategy : strategies)
+        result.append('\n').append(strategy);
+      return result.toString();
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package metrics;
+
+/**
+ * What JMX shows of GameMetrics, as tictactoe:type=Games. Turning the
+ * metrics on and off and starting them over can be done from a JMX
+ * console too.
+ *
+ * @author Alex
+ */
+public interface GameMetricsMXBean {
+
+  boolean isEnabled();
+
+  void setEnabled(boolean enabled);
+
+  long getMoves();
+
+  long getGames();
+
+  long getXWins();
+
+  long getOWins();
+
+  long getTies();
+
+  long getNotifications();
+
+  double getNotifyP50Micros();
+
+  double getNotifyP99Micros();
+
+  void reset();
+}
@@ -0,0 +1,44 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event for each move made with TicTacToeGame.choose,
+ * lasting from taking the square to the last observer hearing about it.
+ *
+ * @author Alex
+ */
+@Name("tictactoe.Move")
+@Label("Move")
+@Category("Tic Tac Toe")
+@Description("A move made in a game, including notifying its observers")
+@StackTrace(false)
+public class MoveEvent extends jdk.jfr.Event {
+
+  @Label("Rows")
+  public int rows;
+
+  @Label("Columns")
+  public int cols;
+
+  @Label("Win Length")
+  public int winLength;
+
+  @Label("Move Number")
+  @Description("1 for the first move of a game")
+  public int moveNumber;
+
+  @Label("Cell")
+  @Description("row * columns + column")
+  public int cell;
+
+  @Label("Player")
+  public char player;
+
+  @Label("Game Over")
+  public boolean gameOver;
+}
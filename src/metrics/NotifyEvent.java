@@ -0,0 +1,32 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event for each notification an OurObservable hands to
+ * its observers, lasting until the last of them returns.
+ *
+ * @author Alex
+ */
+@Name("tictactoe.Notify")
+@Label("Notify Observers")
+@Category("Tic Tac Toe")
+@Description("Every observer being told about one change")
+@StackTrace(false)
+public class NotifyEvent extends jdk.jfr.Event {
+
+  @Label("Event")
+  @Description("The GameEvent type, or UPDATE for a plain update()")
+  public String event;
+
+  @Label("Observers")
+  public int observers;
+
+  @Label("Queued")
+  @Description("Delivered by the dispatch executor rather than the caller")
+  public boolean queued;
+}
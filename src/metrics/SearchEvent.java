@@ -0,0 +1,45 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event for each move a ComputerPlayer asks its strategy
+ * for, lasting as long as the strategy takes to choose it.
+ *
+ * @author Alex
+ */
+@Name("tictactoe.Search")
+@Label("Search")
+@Category("Tic Tac Toe")
+@Description("A strategy choosing a move")
+@StackTrace(false)
+public class SearchEvent extends jdk.jfr.Event {
+
+  @Label("Strategy")
+  public String strategy;
+
+  @Label("Rows")
+  public int rows;
+
+  @Label("Columns")
+  public int cols;
+
+  @Label("Win Length")
+  public int winLength;
+
+  @Label("Move Number")
+  @Description("The move being chosen, 1 for the first move of a game")
+  public int moveNumber;
+
+  @Label("Cell")
+  @Description("The move chosen, row * columns + column")
+  public int cell;
+
+  @Label("Nodes Searched")
+  @Description("Positions looked at, 0 for strategies that do not search")
+  public long nodesSearched;
+}
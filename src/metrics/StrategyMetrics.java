@@ -0,0 +1,135 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How long one kind of strategy takes to choose a move and how many
+ * positions it looks at to do so. GameMetrics keeps one per strategy class
+ * and records into it every time a ComputerPlayer asks for a move; any
+ * number of threads can record at once.
+ *
+ * @author Alex
+ */
+public final class StrategyMetrics implements StrategyMetricsMXBean {
+
+  private final String name;
+  private final LongAdder moves = new LongAdder();
+  private final LongAdder nodes = new LongAdder();
+  private final LatencyHistogram latency = new LatencyHistogram();
+
+  StrategyMetrics(String name) {
+    this.name = name;
+  }
+
+  void record(long nanos, long nodesSearched) {
+    moves.increment();
+    nodes.add(nodesSearched);
+    latency.record(nanos);
+  }
+
+  void reset() {
+    moves.reset();
+    nodes.reset();
+    latency.reset();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getMoves() {
+    return moves.sum();
+  }
+
+  // Positions visited over every move, 0 for strategies that do not search
+  public long getNodesSearched() {
+    return nodes.sum();
+  }
+
+  public double getNodesPerMove() {
+    long count = getMoves();
+    return count == 0 ? 0 : getNodesSearched() / (double) count;
+  }
+
+  // Nanoseconds to choose each move
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  public double getP50Micros() {
+    return latency.getPercentile(50) / 1000.0;
+  }
+
+  public double getP90Micros() {
+    return latency.getPercentile(90) / 1000.0;
+  }
+
+  public double getP99Micros() {
+    return latency.getPercentile(99) / 1000.0;
+  }
+
+  public Snapshot snapshot() {
+    return new Snapshot(this);
+  }
+
+  @Override
+  public String toString() {
+    return snapshot().toString();
+  }
+
+  /**
+   * The numbers of one StrategyMetrics at one moment, which do not change
+   * however many moves are recorded afterwards
+   */
+  public static final class Snapshot {
+    private final String name;
+    private final long moves;
+    private final long nodes;
+    private final double p50Micros;
+    private final double p90Micros;
+    private final double p99Micros;
+
+    private Snapshot(StrategyMetrics metrics) {
+      name = metrics.getName();
+      moves = metrics.getMoves();
+      nodes = metrics.getNodesSearched();
+      p50Micros = metrics.getP50Micros();
+      p90Micros = metrics.getP90Micros();
+      p99Micros = metrics.getP99Micros();
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getMoves() {
+      return moves;
+    }
+
+    public long getNodesSearched() {
+      return nodes;
+    }
+
+    public double getNodesPerMove() {
+      return moves == 0 ? 0 : nodes / (double) moves;
+    }
+
+    public double getP50Micros() {
+      return p50Micros;
+    }
+
+    public double getP90Micros() {
+      return p90Micros;
+    }
+
+    public double getP99Micros() {
+      return p99Micros;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s moves=%d nodesPerMove=%.1f p50Micros=%.1f p90Micros=%.1f p99Micros=%.1f", name,
+          moves, getNodesPerMove(), p50Micros, p90Micros, p99Micros);
+    }
+  }
+}
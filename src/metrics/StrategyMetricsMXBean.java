@@ -0,0 +1,24 @@
+package metrics;
+
+/**
+ * What JMX shows of one strategy's StrategyMetrics, as
+ * tictactoe:type=Strategy,name=the strategy's class name
+ *
+ * @author Alex
+ */
+public interface StrategyMetricsMXBean {
+
+  String getName();
+
+  long getMoves();
+
+  long getNodesSearched();
+
+  double getNodesPerMove();
+
+  double getP50Micros();
+
+  double getP90Micros();
+
+  double getP99Micros();
+}
@@ -0,0 +1,286 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The shape of a board: rows x cols cells, numbered row-major as
+ * r * cols + c, where a player wins with k in a row horizontally,
+ * vertically or diagonally.
+ *
+ * Every line (each run of k cells in one of the four directions) is
+ * enumerated once here so that games and strategies of any size can share
+ * the same tables. Geometries are immutable and cached, so all games of the
+ * same shape share one instance.
+ */
+public final class BoardGeometry {
+
+  private static final Map<Long, BoardGeometry> cache = new HashMap<Long, BoardGeometry>();
+
+  // The four directions a line can run in: right, down, down-right, down-left
+  private static final int[] ROW_STEP = { 0, 1, 1, 1 };
+  private static final int[] COL_STEP = { 1, 0, 1, -1 };
+
+  private final int rows;
+  private final int cols;
+  private final int k;
+  private final int cells;
+
+  // lineCells[line] are the k cells of a line, in order
+  private final int[][] lineCells;
+  // linesThroughCell[cell] are the indexes of every line covering that cell
+  private final int[][] linesThroughCell;
+  // When the board fits in a long, maskThroughCell[cell] holds the bit mask
+  // of each of those lines; null for larger boards
+  private final long[][] maskThroughCell;
+  // and lineMasks[line] the mask of every line; null for larger boards
+  private final long[] lineMasks;
+  // The bit mask of every line on a board of any size, a word at a time:
+  // the words of line are lineWords[lineSpans[line]] up to but not including
+  // lineWords[lineSpans[line + 1]], masked by lineWordMasks at the same index
+  private final int[] lineSpans;
+  private final int[] lineWords;
+  private final long[] lineWordMasks;
+  // A random key for X on each cell followed by one for O on each cell, so
+  // that a position can be hashed by xoring the keys of its pieces
+  private final long[] zobrist;
+
+  /**
+   * Return the (shared) geometry of a rows x cols board with k in a row to win
+   *
+   * @throws IllegalArgumentException if the board is empty or k does not fit
+   */
+  public static BoardGeometry of(int rows, int cols, int k) {
+    if (rows < 1 || cols < 1 || k < 1 || k > Math.max(rows, cols))
+      throw new IllegalArgumentException("No " + k + " in a row on a " + rows + "x" + cols + " board");
+    long key = ((long) rows << 42) | ((long) cols << 21) | k;
+    synchronized (cache) {
+      BoardGeometry result = cache.get(key);
+      if (result == null) {
+        result = new BoardGeometry(rows, cols, k);
+        cache.put(key, result);
+      }
+      return result;
+    }
+  }
+
+  private BoardGeometry(int rows, int cols, int k) {
+    this.rows = rows;
+    this.cols = cols;
+    this.k = k;
+    this.cells = rows * cols;
+
+    int count = 0;
+    for (int d = 0; d < 4; d++)
+      for (int r = 0; r < rows; r++)
+        for (int c = 0; c < cols; c++)
+          if (fits(r, c, d))
+            count++;
+
+    lineCells = new int[count][];
+    int[] perCell = new int[cells];
+    int line = 0;
+    for (int d = 0; d < 4; d++)
+      for (int r = 0; r < rows; r++)
+        for (int c = 0; c < cols; c++)
+          if (fits(r, c, d)) {
+            int[] run = new int[k];
+            for (int i = 0; i < k; i++) {
+              run[i] = (r + i * ROW_STEP[d]) * cols + c + i * COL_STEP[d];
+              perCell[run[i]]++;
+            }
+            lineCells[line++] = run;
+          }
+
+    linesThroughCell = new int[cells][];
+    for (int cell = 0; cell < cells; cell++)
+      linesThroughCell[cell] = new int[perCell[cell]];
+    int[] filled = new int[cells];
+    for (line = 0; line < lineCells.length; line++)
+      for (int cell : lineCells[line])
+        linesThroughCell[cell][filled[cell]++] = line;
+
+    if (cells <= 64) {
+      lineMasks = new long[count];
+      for (line = 0; line < count; line++)
+        lineMasks[line] = lineMask(line);
+      maskThroughCell = new long[cells][];
+      for (int cell = 0; cell < cells; cell++) {
+        maskThroughCell[cell] = new long[linesThroughCell[cell].length];
+        for (int i = 0; i < linesThroughCell[cell].length; i++)
+          maskThroughCell[cell][i] = lineMask(linesThroughCell[cell][i]);
+      }
+    } else {
+      lineMasks = null;
+      maskThroughCell = null;
+    }
+
+    // The cells of a line always go up, so each word's cells are together
+    lineSpans = new int[count + 1];
+    for (line = 0; line < count; line++) {
+      int words = 0;
+      for (int i = 0; i < k; i++)
+        if (i == 0 || lineCells[line][i] >>> 6 != lineCells[line][i - 1] >>> 6)
+          words++;
+      lineSpans[line + 1] = lineSpans[line] + words;
+    }
+    lineWords = new int[lineSpans[count]];
+    lineWordMasks = new long[lineSpans[count]];
+    for (line = 0; line < count; line++) {
+      int span = lineSpans[line] - 1;
+      for (int i = 0; i < k; i++) {
+        int cell = lineCells[line][i];
+        if (i == 0 || cell >>> 6 != lineCells[line][i - 1] >>> 6)
+          lineWords[++span] = cell >>> 6;
+        lineWordMasks[span] |= 1L << cell;
+      }
+    }
+
+    // Seeded by shape so every run hashes the same position the same way
+    Random random = new Random(((long) rows << 42) | ((long) cols << 21) | k);
+    zobrist = new long[2 * cells];
+    for (int i = 0; i < zobrist.length; i++)
+      zobrist[i] = random.nextLong();
+  }
+
+  // true if a line of k cells starting at (r, c) in direction d stays on the board
+  private boolean fits(int r, int c, int d) {
+    int endRow = r + (k - 1) * ROW_STEP[d];
+    int endCol = c + (k - 1) * COL_STEP[d];
+    return endRow >= 0 && endRow < rows && endCol >= 0 && endCol < cols;
+  }
+
+  private long lineMask(int line) {
+    long mask = 0;
+    for (int cell : lineCells[line])
+      mask |= 1L << cell;
+    return mask;
+  }
+
+  public int rows() {
+    return rows;
+  }
+
+  public int cols() {
+    return cols;
+  }
+
+  public int winLength() {
+    return k;
+  }
+
+  public int cells() {
+    return cells;
+  }
+
+  public int cell(int row, int col) {
+    return row * cols + col;
+  }
+
+  public int row(int cell) {
+    return cell / cols;
+  }
+
+  public int col(int cell) {
+    return cell % cols;
+  }
+
+  public boolean isSquare() {
+    return rows == cols;
+  }
+
+  public int lineCount() {
+    return lineCells.length;
+  }
+
+  // The cells of one line; callers must not modify the array
+  public int[] lineCells(int line) {
+    return lineCells[line];
+  }
+
+  // The indexes of the lines through one cell; callers must not modify the array
+  public int[] linesThroughCell(int cell) {
+    return linesThroughCell[cell];
+  }
+
+  // The Zobrist key of player (0 for X, 1 for O) on cell
+  public long zobristKey(int player, int cell) {
+    return zobrist[player * cells + cell];
+  }
+
+  // The masks of the lines through one cell, or null when cells() > 64
+  long[] masksThroughCell(int cell) {
+    return maskThroughCell == null ? null : maskThroughCell[cell];
+  }
+
+  // The masks of every line, or null when cells() > 64
+  long[] lineMasks() {
+    return lineMasks;
+  }
+
+  // The number of cells of line that are set in bits, a bitboard of
+  // cells() bits
+  int countInLine(long[] bits, int line) {
+    int count = 0;
+    for (int i = lineSpans[line]; i < lineSpans[line + 1]; i++)
+      count += Long.bitCount(bits[lineWords[i]] & lineWordMasks[i]);
+    return count;
+  }
+
+  // The first cell of line set in neither bitboard, or -1 if there is none
+  int emptyCellInLine(long[] xBits, long[] oBits, int line) {
+    for (int i = lineSpans[line]; i < lineSpans[line + 1]; i++) {
+      int word = lineWords[i];
+      long empty = lineWordMasks[i] & ~(xBits[word] | oBits[word]);
+      if (empty != 0)
+        return (word << 6) + Long.numberOfTrailingZeros(empty);
+    }
+    return -1;
+  }
+
+  /**
+   * Count how many of the player's stones run through cell in the direction
+   * (dRow, dCol) and its opposite, including the cell itself. The player's
+   * stones are given as a bitboard of cells() bits.
+   */
+  int runLength(long[] playerBits, int cell, int dRow, int dCol) {
+    int r0 = cell / cols;
+    int c0 = cell % cols;
+    int run = 1;
+    for (int r = r0 + dRow, c = c0 + dCol; r >= 0 && r < rows && c >= 0 && c < cols
+        && isSet(playerBits, r * cols + c); r += dRow, c += dCol)
+      run++;
+    for (int r = r0 - dRow, c = c0 - dCol; r >= 0 && r < rows && c >= 0 && c < cols
+        && isSet(playerBits, r * cols + c); r -= dRow, c -= dCol)
+      run++;
+    return run;
+  }
+
+  /**
+   * true if the player's stones, which include cell, make k in a row through
+   * that cell. Only the lines through the cell are examined.
+   */
+  boolean completesLine(long[] playerBits, int cell) {
+    if (maskThroughCell != null) {
+      long bits = playerBits[0];
+      for (long line : maskThroughCell[cell])
+        if ((bits & line) == line)
+          return true;
+      return false;
+    }
+    for (int d = 0; d < 4; d++)
+      if (runLength(playerBits, cell, ROW_STEP[d], COL_STEP[d]) >= k)
+        return true;
+    return false;
+  }
+
+  static boolean isSet(long[] bits, int cell) {
+    return (bits[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  @Override
+  public String toString() {
+    return rows + "x" + cols + " k=" + k;
+  }
+}
@@ -0,0 +1,204 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The rotations and reflections that map a board onto itself: all eight of
+ * them on a square board, and the identity, half turn and the two mirror
+ * images on a rectangular one. Positions that are the same up to one of
+ * these play the same, so caches, tables and opening books can store them
+ * once under a canonical form.
+ *
+ * Two ways of finding the canonical form are offered:
+ *
+ *    1) canonicalTransform(x, o) compares the transformed boards square by
+ *       square and is exact
+ *    2) a search can keep one Zobrist hash per transform up to date with
+ *       place() at a cost of one xor per transform, and take the smallest
+ *       with canonicalTransform(hashes)
+ *
+ * Either way the transform found maps moves into the canonical frame with
+ * map() and back out of it with unmap().
+ *
+ * @author Alex
+ */
+public final class BoardSymmetry {
+
+  public static final int IDENTITY = 0;
+
+  private static final Map<BoardGeometry, BoardSymmetry> cache = new HashMap<BoardGeometry, BoardSymmetry>();
+
+  private final BoardGeometry geometry;
+  // forward[t][cell] is where transform t sends cell, inverse[t] undoes it
+  private final int[][] forward;
+  private final int[][] inverse;
+  // keys[t][player * cells + cell] is the Zobrist key of player on the
+  // image of cell under t, so xoring them hashes the transformed board
+  private final long[][] keys;
+
+  public static BoardSymmetry of(BoardGeometry geometry) {
+    synchronized (cache) {
+      BoardSymmetry result = cache.get(geometry);
+      if (result == null) {
+        result = new BoardSymmetry(geometry);
+        cache.put(geometry, result);
+      }
+      return result;
+    }
+  }
+
+  private BoardSymmetry(BoardGeometry geometry) {
+    this.geometry = geometry;
+    int rows = geometry.rows();
+    int cols = geometry.cols();
+    int cells = geometry.cells();
+    int count = geometry.isSquare() ? 8 : 4;
+    forward = new int[count][cells];
+    inverse = new int[count][cells];
+    keys = new long[count][2 * cells];
+    for (int t = 0; t < count; t++) {
+      for (int cell = 0; cell < cells; cell++) {
+        int r = geometry.row(cell);
+        int c = geometry.col(cell);
+        int image;
+        if (geometry.isSquare())
+          image = squareImage(t, r, c, rows);
+        else
+          image = rectangleImage(t, r, c, rows, cols);
+        forward[t][cell] = image;
+        inverse[t][image] = cell;
+        keys[t][cell] = geometry.zobristKey(0, image);
+        keys[t][cells + cell] = geometry.zobristKey(1, image);
+      }
+    }
+  }
+
+  private static int squareImage(int t, int r, int c, int n) {
+    switch (t) {
+    case 0: // identity
+      return r * n + c;
+    case 1: // quarter turn clockwise
+      return c * n + (n - 1 - r);
+    case 2: // half turn
+      return (n - 1 - r) * n + (n - 1 - c);
+    case 3: // quarter turn counterclockwise
+      return (n - 1 - c) * n + r;
+    case 4: // upside down
+      return (n - 1 - r) * n + c;
+    case 5: // mirror image
+      return r * n + (n - 1 - c);
+    case 6: // across the main diagonal
+      return c * n + r;
+    default: // across the other diagonal
+      return (n - 1 - c) * n + (n - 1 - r);
+    }
+  }
+
+  private static int rectangleImage(int t, int r, int c, int rows, int cols) {
+    switch (t) {
+    case 0:
+      return r * cols + c;
+    case 1:
+      return (rows - 1 - r) * cols + (cols - 1 - c);
+    case 2:
+      return (rows - 1 - r) * cols + c;
+    default:
+      return r * cols + (cols - 1 - c);
+    }
+  }
+
+  public BoardGeometry getGeometry() {
+    return geometry;
+  }
+
+  // The number of transforms, 8 on a square board and 4 otherwise
+  public int size() {
+    return forward.length;
+  }
+
+  // Where transform t sends cell
+  public int map(int t, int cell) {
+    return forward[t][cell];
+  }
+
+  // The cell that transform t sends to cell
+  public int unmap(int t, int cell) {
+    return inverse[t][cell];
+  }
+
+  /**
+   * Find the transform that gives the smallest board, reading the squares
+   * in order with empty < X < O. No arrays are allocated.
+   */
+  public int canonicalTransform(long[] xBits, long[] oBits) {
+    int best = IDENTITY;
+    for (int t = 1; t < forward.length; t++) {
+      int[] candidate = inverse[t];
+      int[] current = inverse[best];
+      for (int cell = 0; cell < candidate.length; cell++) {
+        int a = square(xBits, oBits, candidate[cell]);
+        int b = square(xBits, oBits, current[cell]);
+        if (a != b) {
+          if (a < b)
+            best = t;
+          break;
+        }
+      }
+    }
+    return best;
+  }
+
+  // The canonical transform of a game's current position
+  public int canonicalTransform(TicTacToeGame theGame) {
+    return canonicalTransform(theGame.bitsOf('X'), theGame.bitsOf('O'));
+  }
+
+  private static int square(long[] xBits, long[] oBits, int cell) {
+    if (BoardGeometry.isSet(xBits, cell))
+      return 1;
+    if (BoardGeometry.isSet(oBits, cell))
+      return 2;
+    return 0;
+  }
+
+  /**
+   * @return a new bitboard holding the image of bits under transform t
+   */
+  public long[] transform(int t, long[] bits) {
+    long[] result = new long[bits.length];
+    for (int cell = 0; cell < geometry.cells(); cell++)
+      if (BoardGeometry.isSet(bits, cell)) {
+        int image = forward[t][cell];
+        result[image >>> 6] |= 1L << image;
+      }
+    return result;
+  }
+
+  /**
+   * @return a new array of one hash per transform, all of the empty board
+   */
+  public long[] newHashes() {
+    return new long[forward.length];
+  }
+
+  /**
+   * Add player (0 for X, 1 for O) on cell to every transformed hash, or take
+   * it away again since xor is its own inverse
+   */
+  public void place(long[] hashes, int player, int cell) {
+    int index = player * geometry.cells() + cell;
+    for (int t = 0; t < hashes.length; t++)
+      hashes[t] ^= keys[t][index];
+  }
+
+  // The transform whose hash is smallest. Boards with a symmetry hash the
+  // same under the transforms that fix them, and any of those will do.
+  public int canonicalTransform(long[] hashes) {
+    int best = IDENTITY;
+    for (int t = 1; t < hashes.length; t++)
+      if (Long.compareUnsigned(hashes[t], hashes[best]) < 0)
+        best = t;
+    return best;
+  }
+}
@@ -2,11 +2,17 @@ package model;
 
 import java.awt.Point;
 
+import metrics.GameMetrics;
+import metrics.SearchEvent;
+
 /**
  * This class allows a tic tac to player to play games
  * against a variety of AIs.  It completely relies on 
  * the TicTacToeStrategy for it's next move with the  
  * desiredMove method that can "see" the game.
+ *
+ * Every move asked for is timed into GameMetrics while it is enabled, and
+ * written to a flight recording as a tictactoe.Search event.
  * 
  * @author mercer
  *
@@ -28,6 +34,10 @@ public class ComputerPlayer {
     myStrategy = strategy;
   }
 
+  public TicTacToeStrategy getStrategy() {
+    return myStrategy;
+  }
+
   /**
    * Delegate to my strategy, which can "see" the game for my next move
    * 
@@ -36,7 +46,52 @@ public class ComputerPlayer {
    * @return A java.awt.Point that store two ints: an x and a y
    */
   public Point desiredMove(TicTacToeGame theGame) {
-    return myStrategy.desiredMove(theGame);
+    TicTacToeStrategy strategy = myStrategy;
+    SearchEvent event = new SearchEvent();
+    event.begin();
+    boolean timed = GameMetrics.isEnabled();
+    long start = timed ? System.nanoTime() : 0;
+    Point move = strategy.desiredMove(theGame);
+    if (timed)
+      GameMetrics.moveChosen(strategy, System.nanoTime() - start, strategy.getNodesSearched());
+    if (event.shouldCommit())
+      commit(event, strategy, theGame, move.x * theGame.cols() + move.y);
+    return move;
+  }
+
+  /**
+   * The same as desiredMove without creating a Point
+   * 
+   * @param theGame The current state of the game when asked for a move
+   * 
+   * @return The cell of the move, row * theGame.cols() + col, which can be
+   *         passed straight to theGame.choose(int)
+   */
+  public int desiredCell(TicTacToeGame theGame) {
+    TicTacToeStrategy strategy = myStrategy;
+    SearchEvent event = new SearchEvent();
+    event.begin();
+    boolean timed = GameMetrics.isEnabled();
+    long start = timed ? System.nanoTime() : 0;
+    int cell = strategy.desiredCell(theGame);
+    if (timed)
+      GameMetrics.moveChosen(strategy, System.nanoTime() - start, strategy.getNodesSearched());
+    if (event.shouldCommit())
+      commit(event, strategy, theGame, cell);
+    return cell;
+  }
+
+  // Fill in and write a flight recorder event for the move strategy chose
+  private static void commit(SearchEvent event, TicTacToeStrategy strategy, TicTacToeGame theGame, int cell) {
+    BoardGeometry geometry = theGame.getGeometry();
+    event.strategy = strategy.getClass().getSimpleName();
+    event.rows = geometry.rows();
+    event.cols = geometry.cols();
+    event.winLength = geometry.winLength();
+    event.moveNumber = theGame.getMoveNumber() + 1;
+    event.cell = cell;
+    event.nodesSearched = strategy.getNodesSearched();
+    event.commit();
   }
 
 }
\ No newline at end of file
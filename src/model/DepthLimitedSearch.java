@@ -0,0 +1,26 @@
+package model;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * A strategy that looks a given number of moves ahead, so that
+ * IterativeDeepening can run it deeper and deeper until time runs out.
+ *
+ * @author Alex
+ */
+public interface DepthLimitedSearch {
+
+  /**
+   * Search theGame depth moves ahead for the player to move.
+   *
+   * @param firstMove a move to try before any other, usually the best
+   *          move of a shallower search, or -1
+   * @param stop polled now and then during the search, which gives up as
+   *          soon as it returns true
+   * @return the best move, or -1 if the search gave up before it finished
+   */
+  int search(TicTacToeGame theGame, int depth, int firstMove, BooleanSupplier stop);
+
+  // The number of positions visited by the last search
+  long getNodesSearched();
+}
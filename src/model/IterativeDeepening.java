@@ -0,0 +1,99 @@
+package model;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Plays a DepthLimitedSearch within a time limit by searching one move
+ * ahead, then two, and so on until the time is up, trying each search's
+ * best move first in the next. The move played is the best move of the
+ * deepest search that finished; a search cut short by the time limit is
+ * thrown away. The one move search always finishes, however short the
+ * limit, so there is always a move to play.
+ *
+ * After each move the depth reached and the speed of the search can be
+ * read back, to see what a time limit buys on a given board.
+ *
+ * @author Alex
+ */
+public class IterativeDeepening implements TicTacToeStrategy {
+
+  private final DepthLimitedSearch search;
+  private final long timeLimitNanos;
+  private final int maxDepth;
+
+  private int depthReached;
+  private long nodes;
+  private long elapsedNanos;
+
+  /*---------------------------------------------
+   * Constructor: IterativeDeepening
+   * Purpose: Give a NegamaxAI timeLimitMillis per move, as deep as
+   * it can get
+   * ----------------------------------------------*/
+  public IterativeDeepening(long timeLimitMillis) {
+    this(new NegamaxAI(Integer.MAX_VALUE, 20), timeLimitMillis, Integer.MAX_VALUE);
+  }
+
+  /*---------------------------------------------
+   * Constructor: IterativeDeepening
+   * Purpose: Give search timeLimitMillis per move, stopping early at
+   * maxDepth moves ahead
+   * ----------------------------------------------*/
+  public IterativeDeepening(DepthLimitedSearch search, long timeLimitMillis, int maxDepth) {
+    if (timeLimitMillis < 0)
+      throw new IllegalArgumentException("timeLimitMillis must not be negative");
+    if (maxDepth < 1)
+      throw new IllegalArgumentException("maxDepth must be at least 1");
+    this.search = search;
+    this.timeLimitNanos = timeLimitMillis * 1000000;
+    this.maxDepth = maxDepth;
+  }
+
+  @Override
+  public int desiredCell(TicTacToeGame theGame) {
+    if (theGame.maxMovesRemaining() == 0)
+      throw new IGotNowhereToGoException("Invalid Move");
+
+    long start = System.nanoTime();
+    long deadline = start + timeLimitNanos;
+    int lastDepth = Math.min(maxDepth, theGame.maxMovesRemaining());
+    int best = search.search(theGame, 1, -1, () -> false);
+    depthReached = 1;
+    nodes = search.getNodesSearched();
+    // Interrupting the caller stops the search as running out of time does
+    Thread caller = Thread.currentThread();
+    BooleanSupplier stop = () -> System.nanoTime() >= deadline || caller.isInterrupted();
+    for (int depth = 2; depth <= lastDepth && !stop.getAsBoolean(); depth++) {
+      int move = search.search(theGame, depth, best, stop);
+      nodes += search.getNodesSearched();
+      if (move < 0)
+        break;
+      best = move;
+      depthReached = depth;
+    }
+    elapsedNanos = System.nanoTime() - start;
+    return best;
+  }
+
+  // The depth of the deepest search that finished for the last move
+  public int getDepthReached() {
+    return depthReached;
+  }
+
+  // Positions visited for the last move, counting unfinished searches
+  public long getNodesSearched() {
+    return nodes;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  public double getNodesPerSecond() {
+    return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+  }
+
+  public long getTimeLimitMillis() {
+    return timeLimitNanos / 1000000;
+  }
+}
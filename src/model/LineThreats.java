@@ -0,0 +1,205 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Keeps count of how many pieces each player has in every line of k cells,
+ * updated as pieces are placed and removed, so that a strategy can ask
+ * about threats without scanning the board. A line is open for a player
+ * while the other player has no piece in it; openLines(player, n) is the
+ * number of open lines where the player has n pieces, so on a k=5 board
+ * openLines(player, 2), 3 and 4 are the open twos, threes and fours.
+ *
+ * Placing or removing a piece only touches the lines through its cell.
+ * The lines one piece short of a win are also kept in a list per player,
+ * so a winning or blocking cell is found without a search, and
+ * evaluate() keeps a running total of NegamaxAI's score for unfinished
+ * positions, where every open line counts more the fuller it is.
+ *
+ * Players are 0 for X and 1 for O. Nothing checks that a cell is empty
+ * before a piece is placed on it; that is left to the game.
+ *
+ * @author Alex
+ */
+public final class LineThreats {
+
+  private final BoardGeometry geometry;
+  private final int k;
+  private final int[][] counts; // counts[player][line], pieces in each line
+  private final int[][] open; // open[player][n], open lines with n pieces
+  private final long[] cellSum; // sum of the cells in each line
+  private final long[] takenSum; // sum of the taken cells in each line
+  // The first nearWinCount[player] entries of nearWins[player] are the open
+  // lines with k - 1 of player's pieces, in no order; nearWinAt[player][line]
+  // is where a line is in that list, or -1
+  private final int[][] nearWins;
+  private final int[] nearWinCount;
+  private final int[][] nearWinAt;
+  private int score; // evaluate() for X
+
+  public LineThreats(BoardGeometry geometry) {
+    this.geometry = geometry;
+    k = geometry.winLength();
+    int lines = geometry.lineCount();
+    counts = new int[2][lines];
+    open = new int[2][k + 1];
+    cellSum = new long[lines];
+    takenSum = new long[lines];
+    for (int line = 0; line < lines; line++)
+      for (int cell : geometry.lineCells(line))
+        cellSum[line] += cell;
+    nearWins = new int[2][lines];
+    nearWinCount = new int[2];
+    nearWinAt = new int[2][lines];
+    clear();
+  }
+
+  public BoardGeometry getGeometry() {
+    return geometry;
+  }
+
+  // Start again from the empty board
+  public void clear() {
+    for (int player = 0; player < 2; player++) {
+      Arrays.fill(counts[player], 0);
+      Arrays.fill(open[player], 0);
+      open[player][0] = geometry.lineCount();
+      Arrays.fill(nearWinAt[player], -1);
+      nearWinCount[player] = 0;
+    }
+    Arrays.fill(takenSum, 0);
+    score = 0;
+    if (k == 1)
+      for (int line = 0; line < geometry.lineCount(); line++)
+        for (int player = 0; player < 2; player++)
+          addNearWin(player, line);
+  }
+
+  /*---------------------------------------------
+   * Method: setUp
+   * Purpose: count the lines of a game in progress, which must be
+   * on this board
+   * ----------------------------------------------*/
+  public void setUp(TicTacToeGame game) {
+    if (game.getGeometry() != geometry)
+      throw new IllegalArgumentException("LineThreats for " + geometry + " given a " + game.getGeometry() + " game");
+    clear();
+    for (int index = 0; index < game.getMoveNumber(); index++)
+      place(index % 2, game.getMove(index));
+  }
+
+  public void place(int player, int cell) {
+    for (int line : geometry.linesThroughCell(cell)) {
+      leave(line);
+      counts[player][line]++;
+      takenSum[line] += cell;
+      enter(line);
+    }
+  }
+
+  // Take back place(player, cell)
+  public void remove(int player, int cell) {
+    for (int line : geometry.linesThroughCell(cell)) {
+      leave(line);
+      counts[player][line]--;
+      takenSum[line] -= cell;
+      enter(line);
+    }
+  }
+
+  // Take line out of the totals before it changes
+  private void leave(int line) {
+    int x = counts[0][line];
+    int o = counts[1][line];
+    if (o == 0) {
+      open[0][x]--;
+      if (x == k - 1)
+        removeNearWin(0, line);
+    }
+    if (x == 0) {
+      open[1][o]--;
+      if (o == k - 1)
+        removeNearWin(1, line);
+    }
+    score -= worth(x, o);
+  }
+
+  // Put line back into the totals after it changes
+  private void enter(int line) {
+    int x = counts[0][line];
+    int o = counts[1][line];
+    if (o == 0) {
+      open[0][x]++;
+      if (x == k - 1)
+        addNearWin(0, line);
+    }
+    if (x == 0) {
+      open[1][o]++;
+      if (o == k - 1)
+        addNearWin(1, line);
+    }
+    score += worth(x, o);
+  }
+
+  // What a line is worth to X towards evaluate()
+  private static int worth(int x, int o) {
+    if (o == 0 && x > 0)
+      return 1 << (2 * Math.min(x, 8));
+    if (x == 0 && o > 0)
+      return -(1 << (2 * Math.min(o, 8)));
+    return 0;
+  }
+
+  private void addNearWin(int player, int line) {
+    nearWinAt[player][line] = nearWinCount[player];
+    nearWins[player][nearWinCount[player]++] = line;
+  }
+
+  private void removeNearWin(int player, int line) {
+    int at = nearWinAt[player][line];
+    int last = nearWins[player][--nearWinCount[player]];
+    nearWins[player][at] = last;
+    nearWinAt[player][last] = at;
+    nearWinAt[player][line] = -1;
+  }
+
+  /**
+   * @return the number of lines where player has n pieces and the other
+   *         player none
+   */
+  public int openLines(int player, int n) {
+    return open[player][n];
+  }
+
+  public boolean hasWon(int player) {
+    return open[player][k] > 0;
+  }
+
+  /**
+   * @return the number of lines player could complete with one more piece,
+   *         counting a cell on two such lines twice
+   */
+  public int nearWins(int player) {
+    return nearWinCount[player];
+  }
+
+  /**
+   * @return an empty cell that completes a line for player, or -1 if none;
+   *         for the player to move it is a win, for the other a block
+   */
+  public int winningCell(int player) {
+    if (nearWinCount[player] == 0)
+      return -1;
+    int line = nearWins[player][0];
+    return (int) (cellSum[line] - takenSum[line]);
+  }
+
+  /**
+   * @return the running score of the board for player: every open line
+   *         is worth 4^n to the player with n pieces in it, capped at n = 8,
+   *         and X's gain is O's loss
+   */
+  public int evaluate(int player) {
+    return player == 0 ? score : -score;
+  }
+}
@@ -0,0 +1,396 @@
+package model;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * This strategy plays many random games from the current position and picks
+ * the move that did best, growing a tree of the positions it has seen with
+ * Monte Carlo Tree Search. Moves in the tree are chosen by UCT, which tries
+ * the moves with the best record most while still trying the rest now and
+ * then. From the edge of the tree each game is finished like RandomAI would,
+ * but on preallocated arrays so no objects are created per game.
+ *
+ * Each move is given a time limit and/or a limit on the number of random
+ * games (playouts). With more than one thread, each thread grows its own
+ * tree from the same position and their visit counts are added up before
+ * choosing (root parallelism). The threads come from one pool shared by
+ * every MonteCarloAI, so strategies can be made and dropped freely.
+ * Interrupting the thread that asked for a move ends the search early
+ * with the best move found so far.
+ *
+ * @author Alex
+ */
+public class MonteCarloAI implements TicTacToeStrategy {
+
+  // How strongly UCT favors moves that have been tried less often
+  private static final double EXPLORATION = 1.4;
+  // Results are kept in half points: 2 for a win, 1 for a tie
+  private static final int WIN_POINTS = 2;
+  private static final int TIE_POINTS = 1;
+  // Positions in each thread's tree unless the constructor says otherwise
+  public static final int DEFAULT_CAPACITY = 1 << 18;
+
+  private final long timeLimitMillis;
+  private final long playoutLimit;
+  private final int treeCapacity;
+  // Shared by every instance; idle threads go away after a minute
+  private static final ExecutorService POOL = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "MonteCarloAI");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Searcher[] searchers;
+  private long seed;
+
+  private long playouts;
+  private long elapsedNanos;
+
+  /*---------------------------------------------
+   * Constructor: MonteCarloAI
+   * Purpose: think for half a second per move on every core
+   * ----------------------------------------------*/
+  public MonteCarloAI() {
+    this(500, Long.MAX_VALUE, Runtime.getRuntime().availableProcessors());
+  }
+
+  /*---------------------------------------------
+   * Constructor: MonteCarloAI
+   * Purpose: stop after timeLimitMillis or after playoutLimit random games,
+   * whichever comes first, sharing the work among threads. Use
+   * Long.MAX_VALUE to leave either limit off.
+   * ----------------------------------------------*/
+  public MonteCarloAI(long timeLimitMillis, long playoutLimit, int threads) {
+    this(timeLimitMillis, playoutLimit, threads, DEFAULT_CAPACITY);
+  }
+
+  /*---------------------------------------------
+   * Constructor: MonteCarloAI
+   * Purpose: the same, with room for treeCapacity positions in each
+   * thread's tree, 20 bytes each. Once a tree is full the remaining
+   * playouts start from its leaves.
+   * ----------------------------------------------*/
+  public MonteCarloAI(long timeLimitMillis, long playoutLimit, int threads, int treeCapacity) {
+    if (treeCapacity < 1)
+      throw new IllegalArgumentException("Need room for at least the root");
+    if (threads < 1)
+      throw new IllegalArgumentException("Need at least one thread");
+    if (timeLimitMillis == Long.MAX_VALUE && playoutLimit == Long.MAX_VALUE)
+      throw new IllegalArgumentException("Need a time limit or a playout limit");
+    this.timeLimitMillis = timeLimitMillis;
+    this.playoutLimit = playoutLimit;
+    this.treeCapacity = treeCapacity;
+    searchers = new Searcher[threads];
+    seed = System.nanoTime();
+  }
+
+  /**
+   * Seed the random games so that, with a playout limit and one thread, the
+   * same position always gets the same move
+   */
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  @Override
+  public int desiredCell(TicTacToeGame theGame) {
+    if (theGame.maxMovesRemaining() == 0)
+      throw new IGotNowhereToGoException("Invalid Move");
+
+    final BoardGeometry geometry = theGame.getGeometry();
+    final long[] x = theGame.bitsOf('X');
+    final long[] o = theGame.bitsOf('O');
+    long start = System.nanoTime();
+    final long deadline = timeLimitMillis == Long.MAX_VALUE ? Long.MAX_VALUE
+        : start + timeLimitMillis * 1000000L;
+    final long perThread = playoutLimit == Long.MAX_VALUE ? Long.MAX_VALUE
+        : Math.max(1, playoutLimit / searchers.length);
+
+    for (int i = 0; i < searchers.length; i++) {
+      if (searchers[i] == null || searchers[i].geometry != geometry)
+        searchers[i] = new Searcher(geometry, treeCapacity);
+      searchers[i].random = new SplittableRandom(seed + i);
+      searchers[i].setUp(x, o);
+    }
+    seed++;
+
+    // An interrupted search stops early and the best move so far is
+    // played; the interrupt is left for the caller to see
+    if (searchers.length == 1) {
+      Thread caller = Thread.currentThread();
+      searchers[0].search(deadline, perThread, caller::isInterrupted);
+    } else
+      runInParallel(deadline, perThread);
+
+    // Add up every tree's visits to each move from the root
+    long[] visits = new long[geometry.cells()];
+    playouts = 0;
+    for (Searcher searcher : searchers) {
+      searcher.addRootVisits(visits);
+      playouts += searcher.playouts;
+    }
+    elapsedNanos = System.nanoTime() - start;
+
+    int best = -1;
+    for (int cell = 0; cell < visits.length; cell++)
+      if (!BoardGeometry.isSet(x, cell) && !BoardGeometry.isSet(o, cell)
+          && (best == -1 || visits[cell] > visits[best]))
+        best = cell;
+    return best;
+  }
+
+  /*---------------------------------------------
+   * Method: runInParallel
+   * Purpose: grow every searcher's tree at once, one per pool thread,
+   * and return once they have all finished. If the caller is
+   * interrupted the searches are told to stop, and still waited for, so
+   * no tree is touched by two threads.
+   * ----------------------------------------------*/
+  private void runInParallel(final long deadline, final long perThread) {
+    final AtomicBoolean stop = new AtomicBoolean();
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    final CountDownLatch finished = new CountDownLatch(searchers.length);
+    for (final Searcher searcher : searchers)
+      POOL.execute(() -> {
+        try {
+          searcher.search(deadline, perThread, stop::get);
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+        } finally {
+          finished.countDown();
+        }
+      });
+    boolean interrupted = false;
+    while (true) {
+      try {
+        finished.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+        stop.set(true);
+      }
+    }
+    if (interrupted)
+      Thread.currentThread().interrupt();
+    if (failure.get() != null)
+      throw new IllegalStateException(failure.get());
+  }
+
+  /**
+   * @return the number of random games played for the last move
+   */
+  public long getPlayouts() {
+    return playouts;
+  }
+
+  // Each random game counts as one position searched
+  @Override
+  public long getNodesSearched() {
+    return playouts;
+  }
+
+  /**
+   * @return random games per second, over all threads, for the last move
+   */
+  public double getPlayoutsPerSecond() {
+    return elapsedNanos == 0 ? 0 : playouts * 1e9 / elapsedNanos;
+  }
+
+  /*
+   * One thread's tree and scratch board. The tree is a set of parallel
+   * arrays; the children of a node are stored next to each other starting
+   * at firstChild. Once the arrays are full the tree stops growing and the
+   * remaining playouts start from its leaves.
+   */
+  private static final class Searcher {
+    final BoardGeometry geometry;
+    SplittableRandom random;
+    long playouts;
+
+    private final int capacity;
+    private final int[] move;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int[] visits;
+    private final int[] points; // for the player who moved here
+    private int used;
+
+    // The board being played on: bits[0] for X, bits[1] for O
+    private final long[][] bits;
+    private final long[][] rootBits; // the position being searched
+    private final int[] empty; // the empty cells, in no order
+    private final int[] whereEmpty; // the index of each cell in empty
+    private int emptyCount;
+    // The same for the position being searched, copied at each playout
+    private final int[] rootEmpty;
+    private final int[] rootWhereEmpty;
+    private int rootEmptyCount;
+    private int rootPlayer;
+    private final int[] path;
+
+    Searcher(BoardGeometry geometry, int capacity) {
+      this.geometry = geometry;
+      this.capacity = capacity;
+      move = new int[capacity];
+      firstChild = new int[capacity];
+      childCount = new int[capacity];
+      visits = new int[capacity];
+      points = new int[capacity];
+      int cells = geometry.cells();
+      bits = new long[2][(cells + 63) / 64];
+      rootBits = new long[2][(cells + 63) / 64];
+      empty = new int[cells];
+      whereEmpty = new int[cells];
+      rootEmpty = new int[cells];
+      rootWhereEmpty = new int[cells];
+      path = new int[cells + 1];
+    }
+
+    // Start a new tree from the position x, o
+    void setUp(long[] x, long[] o) {
+      int cells = geometry.cells();
+      used = 1;
+      move[0] = -1;
+      childCount[0] = 0;
+      visits[0] = 0;
+      points[0] = 0;
+      playouts = 0;
+      rootEmptyCount = 0;
+      for (int cell = 0; cell < cells; cell++)
+        if (!BoardGeometry.isSet(x, cell) && !BoardGeometry.isSet(o, cell)) {
+          rootWhereEmpty[cell] = rootEmptyCount;
+          rootEmpty[rootEmptyCount++] = cell;
+        }
+      rootPlayer = (cells - rootEmptyCount) % 2;
+      System.arraycopy(x, 0, rootBits[0], 0, x.length);
+      System.arraycopy(o, 0, rootBits[1], 0, o.length);
+    }
+
+    // Play random games from the position given to setUp until the
+    // deadline, limit games or stop, which is polled every 64 games
+    void search(long deadline, long limit, BooleanSupplier stop) {
+      int cells = geometry.cells();
+      while (playouts < limit) {
+        if ((playouts & 63) == 0 && playouts > 0 && (System.nanoTime() >= deadline || stop.getAsBoolean()))
+          break;
+        System.arraycopy(rootBits[0], 0, bits[0], 0, bits[0].length);
+        System.arraycopy(rootBits[1], 0, bits[1], 0, bits[1].length);
+        System.arraycopy(rootEmpty, 0, empty, 0, rootEmptyCount);
+        System.arraycopy(rootWhereEmpty, 0, whereEmpty, 0, cells);
+        emptyCount = rootEmptyCount;
+        playOnce();
+        playouts++;
+      }
+    }
+
+    // Select down the tree, expand one level, finish the game at random
+    // and credit everyone on the way down with the result
+    private void playOnce() {
+      int player = rootPlayer;
+      int node = 0;
+      int depth = 0;
+      path[depth++] = node;
+      int winner = -1; // 0 X, 1 O, 2 tie, -1 still playing
+
+      while (childCount[node] > 0) {
+        node = select(node);
+        path[depth++] = node;
+        if (play(player, move[node])) {
+          winner = player;
+          break;
+        }
+        player ^= 1;
+      }
+
+      if (winner == -1 && emptyCount > 0 && visits[node] > 0 && used + emptyCount <= capacity) {
+        expand(node);
+        node = firstChild[node] + random.nextInt(childCount[node]);
+        path[depth++] = node;
+        if (play(player, move[node]))
+          winner = player;
+        else
+          player ^= 1;
+      }
+
+      if (winner == -1)
+        winner = rollout(player);
+
+      // Each node's points are for the player who made the move into it,
+      // which for the root is the player who moved last
+      for (int i = 0; i < depth; i++) {
+        int n = path[i];
+        int mover = rootPlayer ^ ((i + 1) & 1);
+        visits[n]++;
+        if (winner == 2)
+          points[n] += TIE_POINTS;
+        else if (winner == mover)
+          points[n] += WIN_POINTS;
+      }
+    }
+
+    private int select(int node) {
+      int first = firstChild[node];
+      int end = first + childCount[node];
+      double logParent = Math.log(visits[node]);
+      int best = first;
+      double bestValue = -1;
+      for (int child = first; child < end; child++) {
+        if (visits[child] == 0)
+          return child;
+        double value = points[child] / (double) (WIN_POINTS * visits[child])
+            + EXPLORATION * Math.sqrt(logParent / visits[child]);
+        if (value > bestValue) {
+          bestValue = value;
+          best = child;
+        }
+      }
+      return best;
+    }
+
+    private void expand(int node) {
+      firstChild[node] = used;
+      childCount[node] = emptyCount;
+      for (int i = 0; i < emptyCount; i++) {
+        int child = used++;
+        move[child] = empty[i];
+        childCount[child] = 0;
+        visits[child] = 0;
+        points[child] = 0;
+      }
+    }
+
+    // Finish the game with random moves; return 0 or 1 for the winner, 2 for a tie
+    private int rollout(int player) {
+      while (emptyCount > 0) {
+        int cell = empty[random.nextInt(emptyCount)];
+        if (play(player, cell))
+          return player;
+        player ^= 1;
+      }
+      return 2;
+    }
+
+    // Put player on cell; return true if that wins
+    private boolean play(int player, int cell) {
+      bits[player][cell >>> 6] |= 1L << cell;
+      int last = empty[--emptyCount];
+      int index = whereEmpty[cell];
+      empty[index] = last;
+      whereEmpty[last] = index;
+      return geometry.completesLine(bits[player], cell);
+    }
+
+    void addRootVisits(long[] total) {
+      for (int i = 0; i < childCount[0]; i++) {
+        int child = firstChild[0] + i;
+        total[move[child]] += visits[child];
+      }
+    }
+  }
+}
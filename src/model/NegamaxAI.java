@@ -0,0 +1,345 @@
+package model;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * This strategy looks ahead at every reply to every move with a negamax
+ * search and alpha-beta pruning. Positions already searched are remembered
+ * in a transposition table keyed by a Zobrist hash of the board, so the
+ * same position reached by different move orders is only searched once.
+ * The hash is taken of the board's canonical form under BoardSymmetry, so
+ * rotations and reflections of a position share one entry as well.
+ *
+ * On the classic board the whole game tree fits inside the default depth,
+ * so this player never loses. On larger boards the search stops at maxDepth,
+ * scores the position by how many lines each side can still complete, and
+ * only considers squares next to ones already taken. Moves are tried in the
+ * order MoveOrdering suggests. IterativeDeepening can
+ * drive the search one depth at a time to fit a time limit instead.
+ *
+ * @author Alex
+ */
+public class NegamaxAI implements TicTacToeStrategy, DepthLimitedSearch {
+
+  private static final int WIN = 1000000;
+  private static final int INFINITY = WIN + 1;
+  // Scores beyond this are wins or losses a known number of moves away
+  private static final int WIN_THRESHOLD = WIN - 100000;
+  // How many positions to visit between asking whether to stop
+  private static final int STOP_CHECK_INTERVAL = 1024;
+
+  private final int maxDepth;
+  private final TranspositionTable table;
+  private final int orderingFeatures;
+  private long nodes;
+  private BooleanSupplier stop; // polled every STOP_CHECK_INTERVAL positions
+  private boolean stopped;
+
+  // The search state below is rebuilt whenever the board shape changes
+  private BoardGeometry geometry;
+  private BoardSymmetry symmetry;
+  private int[][] moveLists; // one list of moves for each ply
+  private int[] scanOrder; // every cell, in the order moves are generated
+  private MoveOrdering ordering;
+  private long[] hashes; // one per symmetry of the board
+  private LineThreats threats; // kept in step with position
+  // A private copy of the game the search makes and unmakes moves on
+  private TicTacToeGame position;
+
+  /*---------------------------------------------
+   * Constructor: NegamaxAI
+   * Purpose: Search 9 moves ahead, which is the whole game on the
+   * classic board, with a table of 2^18 positions
+   * ----------------------------------------------*/
+  public NegamaxAI() {
+    this(9, 18);
+  }
+
+  /*---------------------------------------------
+   * Constructor: NegamaxAI
+   * Purpose: Search at most maxDepth moves ahead, remembering up to
+   * 2^log2TableSize positions
+   * ----------------------------------------------*/
+  public NegamaxAI(int maxDepth, int log2TableSize) {
+    this(maxDepth, log2TableSize, MoveOrdering.DEFAULT);
+  }
+
+  /*---------------------------------------------
+   * Constructor: NegamaxAI
+   * Purpose: As above, ordering moves with only some of the
+   * MoveOrdering features, to measure what each one saves
+   * ----------------------------------------------*/
+  public NegamaxAI(int maxDepth, int log2TableSize, int orderingFeatures) {
+    if (maxDepth < 1)
+      throw new IllegalArgumentException("maxDepth must be at least 1");
+    if ((orderingFeatures & ~MoveOrdering.ALL) != 0)
+      throw new IllegalArgumentException("Unknown move ordering features " + orderingFeatures);
+    this.maxDepth = maxDepth;
+    table = new TranspositionTable(log2TableSize);
+    this.orderingFeatures = orderingFeatures;
+  }
+
+  /*---------------------------------------------
+   * Method: desiredCell
+   * Purpose: search the current position and return the move
+   * with the best score for the player whose turn it is
+   * ----------------------------------------------*/
+  @Override
+  public int desiredCell(TicTacToeGame theGame) {
+    if (theGame.maxMovesRemaining() == 0)
+      throw new IGotNowhereToGoException("Invalid Move");
+
+    setUp(theGame);
+    nodes = 0;
+    // An interrupted search plays the best move it has found so far
+    Thread caller = Thread.currentThread();
+    stop = caller::isInterrupted;
+    stopped = false;
+    int player = position.getMoveNumber() % 2;
+    int depth = Math.min(maxDepth, position.maxMovesRemaining());
+    int move = searchRoot(player, depth, -1);
+    stop = null;
+    return move;
+  }
+
+  /*---------------------------------------------
+   * Method: search
+   * Purpose: search exactly depth moves ahead, or to the end of the
+   * game if that is sooner, for IterativeDeepening. The transposition
+   * table is kept from one depth to the next.
+   * ----------------------------------------------*/
+  @Override
+  public int search(TicTacToeGame theGame, int depth, int firstMove, BooleanSupplier stop) {
+    if (theGame.maxMovesRemaining() == 0)
+      throw new IGotNowhereToGoException("Invalid Move");
+    if (depth < 1)
+      throw new IllegalArgumentException("depth must be at least 1");
+
+    setUp(theGame);
+    nodes = 0;
+    this.stop = stop;
+    stopped = false;
+    int player = position.getMoveNumber() % 2;
+    int move = searchRoot(player, Math.min(depth, position.maxMovesRemaining()), firstMove);
+    this.stop = null;
+    return stopped ? -1 : move;
+  }
+
+  /**
+   * @return the number of positions visited by the last call to desiredMove
+   *         or search
+   */
+  @Override
+  public long getNodesSearched() {
+    return nodes;
+  }
+
+  // Copy the game into the search state
+  private void setUp(TicTacToeGame theGame) {
+    BoardGeometry shape = theGame.getGeometry();
+    int cells = shape.cells();
+    if (shape != geometry) {
+      if (cells > TranspositionTable.MAX_CELLS)
+        throw new IllegalArgumentException("NegamaxAI can not search a " + shape + " board");
+      geometry = shape;
+      symmetry = BoardSymmetry.of(shape);
+      moveLists = new int[cells + 1][cells];
+      ordering = new MoveOrdering(shape, orderingFeatures);
+      threats = new LineThreats(shape);
+      scanOrder = MoveOrdering.staticOrder(shape);
+      if ((orderingFeatures & MoveOrdering.STATIC) == 0)
+        Arrays.sort(scanOrder);
+      table.clear();
+    } else
+      ordering.newSearch();
+    position = theGame.copy();
+    threats.setUp(position);
+    hashes = symmetry.newHashes();
+    for (int cell = 0; cell < cells; cell++) {
+      if (theGame.isX(cell + 1))
+        symmetry.place(hashes, 0, cell);
+      else if (theGame.isO(cell + 1))
+        symmetry.place(hashes, 1, cell);
+    }
+  }
+
+  private int searchRoot(int player, int depth, int firstMove) {
+    nodes++;
+    int transform = symmetry.canonicalTransform(hashes);
+    long key = hashes[transform];
+    int hashMove = firstMove;
+    if (hashMove < 0) {
+      int slot = table.probe(key);
+      hashMove = slot >= 0 ? fromCanonical(transform, table.bestMove(slot)) : -1;
+    }
+    int count = generateMoves(0, hashMove, depth < position.maxMovesRemaining());
+    int[] moves = moveLists[0];
+    int alpha = -INFINITY;
+    int bestMove = moves[0];
+    for (int i = 0; i < count; i++) {
+      int move = moves[i];
+      place(player, move);
+      int score;
+      if (position.didWin(player == 0 ? 'X' : 'O'))
+        score = WIN;
+      else
+        score = -negamax(1 - player, depth - 1, -INFINITY, -alpha, 1);
+      remove(player, move);
+      if (stopped)
+        return bestMove;
+      if (score > alpha) {
+        alpha = score;
+        bestMove = move;
+      }
+    }
+    table.store(key, toTable(alpha, 0), depth, TranspositionTable.EXACT, symmetry.map(transform, bestMove));
+    return bestMove;
+  }
+
+  private int negamax(int player, int depth, int alpha, int beta, int ply) {
+    nodes++;
+    if (stop != null && nodes % STOP_CHECK_INTERVAL == 0 && stop.getAsBoolean())
+      stopped = true;
+    if (stopped)
+      return 0;
+    int empties = position.maxMovesRemaining();
+    if (empties == 0)
+      return 0;
+    if (depth > empties)
+      depth = empties;
+    if (depth == 0)
+      return evaluate(player);
+
+    int alphaOriginal = alpha;
+    int hashMove = -1;
+    int transform = symmetry.canonicalTransform(hashes);
+    long key = hashes[transform];
+    int slot = table.probe(key);
+    if (slot >= 0) {
+      hashMove = fromCanonical(transform, table.bestMove(slot));
+      if (table.depth(slot) >= depth) {
+        int score = fromTable(table.score(slot), ply);
+        int flag = table.flag(slot);
+        if (flag == TranspositionTable.EXACT)
+          return score;
+        if (flag == TranspositionTable.LOWER_BOUND)
+          alpha = Math.max(alpha, score);
+        else
+          beta = Math.min(beta, score);
+        if (alpha >= beta)
+          return score;
+      }
+    }
+
+    int count = generateMoves(ply, hashMove, depth < empties);
+    int[] moves = moveLists[ply];
+    int best = -INFINITY;
+    int bestMove = -1;
+    for (int i = 0; i < count; i++) {
+      int move = moves[i];
+      place(player, move);
+      int score;
+      if (position.didWin(player == 0 ? 'X' : 'O'))
+        score = WIN - ply;
+      else
+        score = -negamax(1 - player, depth - 1, -beta, -alpha, ply + 1);
+      remove(player, move);
+      // A search cut short has no score worth keeping
+      if (stopped)
+        return 0;
+      if (score > best) {
+        best = score;
+        bestMove = move;
+        if (score > alpha) {
+          alpha = score;
+          if (alpha >= beta) {
+            ordering.cutoff(ply, moves, i, depth);
+            break;
+          }
+        }
+      }
+    }
+
+    int flag = TranspositionTable.EXACT;
+    if (best <= alphaOriginal)
+      flag = TranspositionTable.UPPER_BOUND;
+    else if (best >= beta)
+      flag = TranspositionTable.LOWER_BOUND;
+    table.store(key, toTable(best, ply), depth, flag, symmetry.map(transform, bestMove));
+    return best;
+  }
+
+  // Moves are stored in the table as they would be on the canonical board
+  private int fromCanonical(int transform, int move) {
+    return move < 0 ? move : symmetry.unmap(transform, move);
+  }
+
+  // Fill moveLists[ply] with the empty cells to try, in MoveOrdering's
+  // order. When the search can not reach the end of the game only the hash
+  // move and cells next to a taken cell are tried.
+  private int generateMoves(int ply, int hashMove, boolean nearbyOnly) {
+    int[] moves = moveLists[ply];
+    int count = 0;
+    for (int cell : scanOrder)
+      if (isEmpty(cell) && (!nearbyOnly || cell == hashMove || hasNeighbour(cell)))
+        moves[count++] = cell;
+    if (count == 0)
+      for (int cell : scanOrder)
+        if (isEmpty(cell))
+          moves[count++] = cell;
+    ordering.order(ply, moves, count, hashMove);
+    return count;
+  }
+
+  private boolean isEmpty(int cell) {
+    return position.available(cell);
+  }
+
+  private boolean hasNeighbour(int cell) {
+    int row = geometry.row(cell);
+    int col = geometry.col(cell);
+    for (int r = Math.max(0, row - 1); r <= Math.min(geometry.rows() - 1, row + 1); r++)
+      for (int c = Math.max(0, col - 1); c <= Math.min(geometry.cols() - 1, col + 1); c++)
+        if (!isEmpty(geometry.cell(r, c)))
+          return true;
+    return false;
+  }
+
+  // Score a position the search can not see the end of: every line only
+  // one player has pieces in counts for that player, more so the fuller it
+  // is. LineThreats keeps the total as moves are made and taken back.
+  private int evaluate(int player) {
+    return Math.max(-WIN_THRESHOLD, Math.min(WIN_THRESHOLD, threats.evaluate(player)));
+  }
+
+  // Wins and losses are stored as a distance from the position itself
+  // rather than from the root of whichever search found them
+  private static int toTable(int score, int ply) {
+    if (score > WIN_THRESHOLD)
+      return score + ply;
+    if (score < -WIN_THRESHOLD)
+      return score - ply;
+    return score;
+  }
+
+  private static int fromTable(int score, int ply) {
+    if (score > WIN_THRESHOLD)
+      return score - ply;
+    if (score < -WIN_THRESHOLD)
+      return score + ply;
+    return score;
+  }
+
+  private void place(int player, int cell) {
+    position.makeMove(cell);
+    symmetry.place(hashes, player, cell);
+    threats.place(player, cell);
+  }
+
+  private void remove(int player, int cell) {
+    position.unmakeMove();
+    symmetry.place(hashes, player, cell);
+    threats.remove(player, cell);
+  }
+}
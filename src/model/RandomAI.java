@@ -1,7 +1,8 @@
 package model;
 
-import java.awt.Point;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * This strategy selects the first available move at random.  It is easy to beat
@@ -16,30 +17,40 @@ public class RandomAI implements TicTacToeStrategy {
   // Randomly find an open spot while ignoring possible wins and stops.
   // This should be easy to beat as a human. 
   
+  // null to use the calling thread's ThreadLocalRandom
+  private final RandomGenerator random;
+  
+  public RandomAI() {
+    random = null;
+  }
+  
   /*---------------------------------------------
-   * Method: desiredMove
-   * Purpose: chooses a random number within the game boards size and
-   * determine if it is taken, if it is generate new random, if not play move
-   * at that location
+   * Constructor: RandomAI
+   * Purpose: make the same moves every time for the same seed, such as
+   * for repeatable simulations. Such an instance should only be used by
+   * one thread at a time.
+   * ----------------------------------------------*/
+  public RandomAI(long seed) {
+    this(new SplittableRandom(seed));
+  }
+  
+  public RandomAI(RandomGenerator random) {
+    this.random = random;
+  }
+  
+  /*---------------------------------------------
+   * Method: desiredCell
+   * Purpose: chooses one of the open cells at random. The game keeps a
+   * list of its open cells, so this takes the same time no matter how
+   * full the board is
    * ----------------------------------------------*/
   @Override
-  public Point desiredMove(TicTacToeGame theGame)  {
+  public int desiredCell(TicTacToeGame theGame)  {
     
     // check for invalid move
     if (theGame.maxMovesRemaining() == 0)
       throw new IGotNowhereToGoException("Invalid Move");
     
-    Random rand = new Random();
-    int r = rand.nextInt(theGame.size());
-    int c = rand.nextInt(theGame.size());
-    
-    // generate new number until finding one that is available
-    while (!theGame.available(r, c))
-    {
-      r = rand.nextInt(theGame.size());
-      c = rand.nextInt(theGame.size());
-    }
-    
-    return new Point(r,c);
+    return theGame.randomAvailableCell(random == null ? ThreadLocalRandom.current() : random);
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package model;
+
+/**
+ * This strategy plays the classic 3x3 game perfectly by looking its move up
+ * in a table holding the solution of every position. A position is indexed
+ * in base 3 with one digit per square (0 empty, 1 X, 2 O), so the table has
+ * 3^9 = 19683 one-byte entries and is solved once when the class is loaded.
+ *
+ * Each entry holds the best move (0-8, or 15 if there is none) in the low
+ * four bits and the value of the position to the player about to move
+ * (0 loss, 1 tie, 2 win) in the next two.
+ *
+ * Any other board is handed to a NegamaxAI.
+ *
+ * @author Alex
+ */
+public class SolvedTableAI implements TicTacToeStrategy {
+
+  public static final int LOSS = 0;
+  public static final int TIE = 1;
+  public static final int WIN = 2;
+
+  private static final int CELLS = 9;
+  private static final int NO_MOVE = 15;
+
+  private static final BoardGeometry CLASSIC = BoardGeometry.of(3, 3, 3);
+  // BASE3[mask] is the base 3 index of a set of X squares given as 9 bits
+  private static final int[] BASE3 = Tablebase.base3(CELLS);
+  private static final long[] LINES = CLASSIC.lineMasks();
+  private static final byte[] TABLE = new byte[Tablebase.positions(CELLS)];
+
+  static {
+    boolean[] solved = new boolean[TABLE.length];
+    int[] scores = new int[TABLE.length];
+    solve(0, 0, 0, solved, scores);
+  }
+
+  private NegamaxAI otherBoards;
+
+  @Override
+  public int desiredCell(TicTacToeGame theGame) {
+    if (theGame.maxMovesRemaining() == 0)
+      throw new IGotNowhereToGoException("Invalid Move");
+
+    if (theGame.getGeometry() != CLASSIC) {
+      if (otherBoards == null)
+        otherBoards = new NegamaxAI();
+      return otherBoards.desiredCell(theGame);
+    }
+
+    int move = TABLE[index(theGame)] & 0xF;
+    if (move == NO_MOVE) {
+      // The game is already won; any open square will do
+      for (move = 0; !theGame.available(move); move++)
+        ;
+    }
+    return move;
+  }
+
+  /**
+   * @return LOSS, TIE or WIN for the player about to move in a 3x3 game
+   * @throws IllegalArgumentException if the game is any other shape
+   */
+  public static int value(TicTacToeGame theGame) {
+    if (theGame.getGeometry() != CLASSIC)
+      throw new IllegalArgumentException("SolvedTableAI only knows 3x3 k=3, not " + theGame.getGeometry());
+    return (TABLE[index(theGame)] >>> 4) & 3;
+  }
+
+  private static int index(TicTacToeGame theGame) {
+    return Tablebase.index(BASE3, theGame);
+  }
+
+  private static boolean hasLine(int bits) {
+    for (long line : LINES)
+      if ((bits & line) == line)
+        return true;
+    return false;
+  }
+
+  // Solve the position and every position after it with the player to move
+  // holding mine. Scores are 10 - (moves to the win) for the player who
+  // wins, so quicker wins and slower losses are preferred, and 0 for a tie.
+  private static int solve(int mine, int theirs, int moves, boolean[] solved, int[] scores) {
+    int index = (moves % 2 == 0) ? BASE3[mine] + 2 * BASE3[theirs] : BASE3[theirs] + 2 * BASE3[mine];
+    if (solved[index])
+      return scores[index];
+
+    int best = -100;
+    int bestMove = NO_MOVE;
+    if (hasLine(theirs))
+      best = -(10 - moves);
+    else if (moves == CELLS)
+      best = 0;
+    else
+      for (int cell = 0; cell < CELLS; cell++) {
+        int bit = 1 << cell;
+        if (((mine | theirs) & bit) != 0)
+          continue;
+        int score = -solve(theirs, mine | bit, moves + 1, solved, scores);
+        if (score > best) {
+          best = score;
+          bestMove = cell;
+        }
+      }
+
+    int value = best > 0 ? WIN : best < 0 ? LOSS : TIE;
+    TABLE[index] = (byte) (bestMove | (value << 4));
+    scores[index] = best;
+    solved[index] = true;
+    return best;
+  }
+}
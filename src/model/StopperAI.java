@@ -1,7 +1,8 @@
 package model;
 
-import java.awt.Point;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * This TTT strategy tries to prevent the opponent from winning by checking
@@ -13,29 +14,89 @@ import java.util.Random;
  */
 public class StopperAI implements TicTacToeStrategy {
   
+  // null to use the calling thread's ThreadLocalRandom
+  private final RandomGenerator random;
+  
+  // The classic board's lines in the order the AI has always checked them:
+  // the columns, the diagonal 1 5 9, the rows from the bottom and then the
+  // diagonal 7 5 3. When O has two wins it takes the one in the last line.
+  private static final int[] CLASSIC_LINE_ORDER = { 3, 4, 5, 6, 2, 1, 0, 7 };
+  
+  // Replies to the first moves on the classic board by position 1-9:
+  // moves left, X's positions, then the reply. The first that matches is
+  // played if its square is free.
+  private static final int[][] OPENINGS = {
+      // strat 1 (player one starts in a corner): take the center
+      { 8, 1, 5 }, { 8, 3, 5 }, { 8, 7, 5 }, { 8, 9, 5 },
+      // strat 2 (player starts in middle): take a corner
+      { 8, 5, 1 },
+      // strat 3 (player starts on an edge): a corner beside it
+      { 8, 2, 3 }, { 8, 6, 9 }, { 8, 8, 7 }, { 8, 4, 1 },
+      // strat 4 (player 1 chooses two opposite corners): take an edge
+      { 6, 1, 9, 8 }, { 6, 7, 3, 8 } };
+  
+  private static final BoardGeometry CLASSIC = BoardGeometry.of(3, 3, 3);
+  
+  // The most cells whose number + 1 fits the 30 bits scanLines keeps
+  public static final int MAX_CELLS = (1 << 30) - 1;
+  
+  // The scan of every classic board, worked out once: a position's index
+  // is its board read as a base 3 number, as in Tablebase
+  private static final int[] CLASSIC_BASE3 = Tablebase.base3(9);
+  private static final long[] CLASSIC_SCANS = new long[Tablebase.positions(9)];
+  static {
+    for (int x = 0; x < 512; x++)
+      for (int o = 511 & ~x;; o = (o - 1) & 511 & ~x)
+      {
+        CLASSIC_SCANS[CLASSIC_BASE3[x] + 2 * CLASSIC_BASE3[o]] =
+            scanLines(CLASSIC, new long[] { x }, new long[] { o }, CLASSIC_LINE_ORDER);
+        if (o == 0)
+          break;
+      }
+  }
+  
+  public StopperAI() {
+    random = null;
+  }
+  
+  /*----------------------------------------------
+   * Constructor: StopperAI
+   * Purpose: make the same random moves every time for the same seed.
+   * Such an instance should only be used by one thread at a time.
+   * ---------------------------------------------- */
+  public StopperAI(long seed) {
+    this(new SplittableRandom(seed));
+  }
+  
+  public StopperAI(RandomGenerator random) {
+    this.random = random;
+  }
+  
   /*----------------------------------------------
-   * Method: desiredMove()
+   * Method: desiredCell()
    * Purpose: This determines the move that the AI will take. This
    * is done by a simple algorithm of checking for a win, checking to block,
    * looking to strategize based on player input
    * ---------------------------------------------- */
   @Override
-  public Point desiredMove(TicTacToeGame theGame) {
-    
-    // look for win
-    int winHere = lookWin(theGame);
-    if (winHere != -1)
-      return move(winHere);
+  public int desiredCell(TicTacToeGame theGame) {
     
-    // look to block
-    int blockHere = blockWin(theGame);   
+    // The opening replies below only describe the classic board
+    if (!isClassicBoard(theGame))
+      return lineMove(theGame);
     
-    // If the AI can block, return block
-    if (blockHere != 0 && blockHere != 10)
-      return move(blockHere);
+    // On the classic board the AI plays as O: look for a win for O, then
+    // for X's lines to block
+    long scan = CLASSIC_SCANS[CLASSIC_BASE3[(int) theGame.bitsOf('X')[0]]
+        + 2 * CLASSIC_BASE3[(int) theGame.bitsOf('O')[0]]];
+    if (linesFound(scan, 1) > 0)
+      return cellFound(scan, 1);
     
+    // If the AI can block, return block. With two lines to block it
+    // can not stop both, so it does not try.
+    if (linesFound(scan, 0) == 1)
+      return cellFound(scan, 0);
     
-    // strat yo
     // If no block or win is possible, pick a move from those still available
     return strategy(theGame);
   }
@@ -45,37 +106,20 @@ public class StopperAI implements TicTacToeStrategy {
    * Purpose: This method determines an appropriate move for the
    * AI to beat depending on the plays already made on the board
    * ---------------------------------------------*/
-  private Point strategy(TicTacToeGame theGame) {
-    
-    // stragety1 (player one starts in corner)
-    if (theGame.maxMovesRemaining() == 8 && (theGame.isX(1) || theGame.isX(3) || theGame.isX(7) || theGame.isX(9)))
-    {
-      return move(5);
-    }
-    
-    // strat 2 (player starts in middle)
-    if (theGame.maxMovesRemaining() == 8 && theGame.isX(5))
-    {
-      return move(1);
-    }
-    
-    // strat 3.1 (player starts on edge 2)
-    if (theGame.maxMovesRemaining() == 8 && theGame.isX(2))
-      return move(3);
-    // strat 3.2 (player starts on edge 6)
-    if (theGame.maxMovesRemaining() == 8 && theGame.isX(6))
-      return move(9);
-    // strat 3.3 (player starts on edge 8)
-    if (theGame.maxMovesRemaining() == 8 && theGame.isX(8))
-      return move(7);
-    // strat 3.4 (player starts on edge 4)
-    if (theGame.maxMovesRemaining() == 8 && theGame.isX(4))
-      return move(1);
-    
-    // strat 4 (player 1 chooses two corners)
-    if (theGame.maxMovesRemaining() == 6 && ((theGame.isX(1) && theGame.isX(9)) || (theGame.isX(7) && theGame.isX(3))))
-    {
-      return move(8);
+  private int strategy(TicTacToeGame theGame) {
+    // The openings all answer X's first or second move
+    int movesLeft = theGame.maxMovesRemaining();
+    for (int i = 0; (movesLeft == 8 || movesLeft == 6) && i < OPENINGS.length; i++)
+    {
+      int[] opening = OPENINGS[i];
+      if (opening[0] != movesLeft)
+        continue;
+      boolean matches = true;
+      for (int j = 1; j < opening.length - 1; j++)
+        matches &= theGame.isX(opening[j]);
+      int reply = move(opening[opening.length - 1]);
+      if (matches && theGame.available(reply))
+        return reply;
     }
     
     // strat 5 (random)
@@ -83,454 +127,126 @@ public class StopperAI implements TicTacToeStrategy {
   }
   
   
-  private Point randomMove(TicTacToeGame theGame)
+  private int randomMove(TicTacToeGame theGame)
   {
-    Random rand = new Random();
-    int r = rand.nextInt(theGame.size());
-    int c = rand.nextInt(theGame.size());
-    
-    while (!theGame.available(r, c))
-    {
-      r = rand.nextInt(theGame.size());
-      c = rand.nextInt(theGame.size());
-    }
-    
-    return new Point(r,c);
+    return theGame.randomAvailableCell(random == null ? ThreadLocalRandom.current() : random);
+  }
+  
+  private boolean isClassicBoard(TicTacToeGame theGame)
+  {
+    // Geometries are shared, so the classic board is always this one
+    return theGame.getGeometry() == CLASSIC;
   }
   
   /*
-   * Method: move()
-   * Purpose: This method is used to return a point on a tic tac toe board.
-   * A position is entered as an argument and a point corresponding to that position
-   * is returned.
+   * Method: lineMove()
+   * Purpose: The same idea as the classic board for boards of any size.
+   * Every line of k cells is checked for k-1 of one player's pieces and an
+   * empty cell. The player to move takes a win first, then blocks the
+   * opponent, and otherwise moves at random.
    */
-  private Point move(int move) 
+  private int lineMove(TicTacToeGame theGame)
   {
-    if (move == 1)
-      return new Point(0,0);
-    if (move == 2)
-      return new Point(0,1);
-    if (move == 3)
-      return new Point(0,2);
-    if (move == 4)
-      return new Point(1,0);
-    if (move == 5)
-      return new Point(1,1);
-    if (move == 6)
-      return new Point(1,2);
-    if (move == 7)
-      return new Point(2,0);
-    if (move == 8)
-      return new Point(2,1);
-    else
-      return new Point(2,2);
+    if (theGame.getGeometry().cells() > MAX_CELLS)
+      throw new IllegalArgumentException("StopperAI plays on boards of up to " + MAX_CELLS + " cells");
+    int me = theGame.getMoveNumber() % 2;
+    long scan = scanLines(theGame.getGeometry(), theGame.bitsOf('X'), theGame.bitsOf('O'), null);
+    
+    if (linesFound(scan, me) > 0)
+      return cellFound(scan, me);
+    if (linesFound(scan, 1 - me) > 0)
+      return cellFound(scan, 1 - me);
+    return randomMove(theGame);
   }
   
   /*
-   * Method: blockWin
-   * Purpose: This method takes a tic tac toe game object and
-   * determines if the X character has a potential move to get three
-   * in a row. There are 8 ways to win in tic tac toe and each of those
-   * have 3 variations where two positions are in place to win.
-   * 
-   * NOTE: 3 return situations 
-   *  1. if there is no potential move for x to win, 0 is returned. 
-   *  2. if there is one potential threat for x to win, the position of that winning spot is returned
-   *  3. if there is more that one potential threat for x to win, 10 is returned
+   * Method: scanLines()
+   * Purpose: One pass over the board's table of line masks. For X (0)
+   * and O (1) it finds how many lines the player could finish with one
+   * more piece, and the empty cell of the last of them in order. With no
+   * order the lines are taken from the last to the first. Both are
+   * packed into the result, for linesFound and cellFound to unpack,
+   * so that the scan allocates nothing.
    */
-  private int blockWin(TicTacToeGame g) 
-  { 
-    int potentialWin = 0; // number of potential wins by X
-    int blockPosition = -1;
-    
-    // ---------- 1 4 7 ---------------------
-    if (g.isX(1) && g.isX(4))
-    {
-      if (g.available(2,0))
-      {
-        blockPosition = 7;
-        potentialWin++;
-      }
-    }
-    if (g.isX(1) && g.isX(7))
-    {
-      if (g.available(1,0))
-      {
-        blockPosition = 4;
-        potentialWin++;
-      }
-    }
-    if (g.isX(7) && g.isX(4))
-    {
-      if (g.available(0,0))
-      {
-        blockPosition = 1;
-        potentialWin++;
-      }
-    }
-    // ---------- 1 4 7 ---------------------
-    
-    // ---------- 2 5 8 ---------------------
-    if (g.isX(2) && g.isX(5))
-    {
-      if (g.available(2,1))
-      {
-        blockPosition = 8;
-        potentialWin++;
-      }
-    }
-    if (g.isX(2) && g.isX(8))
-    {
-      if (g.available(1,1))
-      {
-        blockPosition = 5;
-        potentialWin++;
-      }
-    }
-    if (g.isX(5) && g.isX(8))
-    {
-      if (g.available(0,1))
-      {
-        blockPosition = 2;
-        potentialWin++;
-      }
-    }
-    // ---------- 2 5 8 ---------------------
-    
-    // ---------- 3 6 9 ---------------------
-    if (g.isX(3) && g.isX(6))
-    {
-      if (g.available(2,2))
-      {
-        blockPosition = 9;
-        potentialWin++;
-      }
-    }
-    if (g.isX(3) && g.isX(9))
-    {
-      if (g.available(1,2))
-      {
-        blockPosition = 6;
-        potentialWin++;
-      }
-    }
-    if (g.isX(6) && g.isX(9))
-    {
-      if (g.available(0,2))
-      {
-        blockPosition = 3;
-        potentialWin++;
-      }
-    }
-    // ---------- 3 6 9 ---------------------
-    
-    // ---------- 1 5 9 ---------------------
-    if (g.isX(1) && g.isX(5))
-    {
-      if (g.available(2,2))
-      {
-        blockPosition = 9;
-        potentialWin++;
-      }
-    }
-    if (g.isX(1) && g.isX(9))
-    {
-      if (g.available(1,1))
-      {
-        blockPosition = 5;
-        potentialWin++;
-      }
-    }
-    if (g.isX(5) && g.isX(9))
-    {
-      if (g.available(0,0))
-      {
-        blockPosition = 1;
-        potentialWin++;
-      }
-    }
-    // ---------- 1 5 9 ---------------------
-    
-    // ---------- 7 8 9 ---------------------
-    if (g.isX(7) && g.isX(8))
-    {
-      if (g.available(2,2))
-      {
-        blockPosition = 9;
-        potentialWin++;
-      }
-    }
-    if (g.isX(7) && g.isX(9))
-    {
-      if (g.available(2,1))
-      {
-        blockPosition = 8;
-        potentialWin++;
-      }
-    }
-    if (g.isX(8) && g.isX(9))
-    {
-      if (g.available(2,0))
-      {
-        blockPosition = 7;
-        potentialWin++;
-      }
-    }
-    // ---------- 7 8 9 ---------------------
-    
-    // ---------- 4 5 6 ---------------------
-    if (g.isX(4) && g.isX(5))
-    {
-      if (g.available(1,2))
-      {
-        blockPosition = 6;
-        potentialWin++;
-      }
-    }
-    if (g.isX(4) && g.isX(6))
-    {
-      if (g.available(1,1))
-      {
-        blockPosition = 5;
-        potentialWin++;
-      }
-    }
-    if (g.isX(5) && g.isX(6))
-    {
-      if (g.available(1,0))
-      {
-        blockPosition = 4;
-        potentialWin++;
-      }
-    }
-    // ---------- 4 5 6 ---------------------  
-    
-    // ---------- 1 2 3 ---------------------
-    if (g.isX(1) && g.isX(2))
+  private static long scanLines(BoardGeometry geometry, long[] xBits, long[] oBits, int[] order)
+  {
+    int nearly = geometry.winLength() - 1;
+    int lines = geometry.lineCount();
+    int xFound = 0;
+    int oFound = 0;
+    int xLast = -1;
+    int oLast = -1;
+    // Boards of up to 64 cells have a single mask per line
+    long[] masks = geometry.lineMasks();
+    for (int i = 0; i < lines; i++)
     {
-      if (g.available(0,2))
+      int line = order == null ? lines - 1 - i : order[i];
+      int x;
+      int o;
+      if (masks != null)
       {
-        blockPosition = 3;
-        potentialWin++;
+        x = Long.bitCount(xBits[0] & masks[line]);
+        o = Long.bitCount(oBits[0] & masks[line]);
       }
-    }
-    if (g.isX(1) && g.isX(3))
-    {
-      if (g.available(0,1))
+      else
       {
-        blockPosition = 2;
-        potentialWin++;
+        x = geometry.countInLine(xBits, line);
+        o = geometry.countInLine(oBits, line);
       }
-    }
-    if (g.isX(2) && g.isX(3))
-    {
-      if (g.available(0,0))
+      if (x == nearly && o == 0)
       {
-        blockPosition = 1;
-        potentialWin++;
+        xFound++;
+        xLast = line;
       }
-    }
-    // ---------- 1 2 3 ---------------------
-    
-    // ---------- 7 5 3 ---------------------
-    if (g.isX(7) && g.isX(5))
-    {
-      if (g.available(0,2))
-      {
-        blockPosition = 3;
-        potentialWin++;
-      }
-    }
-    if (g.isX(7) && g.isX(3))
-    {
-      if (g.available(1,1))
+      if (o == nearly && x == 0)
       {
-        blockPosition = 5;
-        potentialWin++;
+        oFound++;
+        oLast = line;
       }
     }
-    if (g.isX(5) && g.isX(3))
-    {
-      if (g.available(2,0))
-      {
-        blockPosition = 7;
-        potentialWin++;
-      }
-    }
-    // ---------- 7 5 3 ---------------------
-    
-    if (potentialWin > 1)
-      return 10;
-    if (blockPosition != -1)
-      return blockPosition;
-    
-    return 0;
+    int xCell = emptyCell(geometry, xBits, oBits, xLast);
+    int oCell = emptyCell(geometry, xBits, oBits, oLast);
+    return pack(xFound, xCell) | pack(oFound, oCell) << 32;
   }
   
+  private static int emptyCell(BoardGeometry geometry, long[] xBits, long[] oBits, int line)
+  {
+    if (line < 0)
+      return -1;
+    long[] masks = geometry.lineMasks();
+    if (masks != null)
+      return Long.numberOfTrailingZeros(masks[line] & ~(xBits[0] | oBits[0]));
+    return geometry.emptyCellInLine(xBits, oBits, line);
+  }
+  
+  // A player's half of scanLines: the cell + 1 over the number of lines.
+  // Callers only tell none, one and more apart, so two bits hold the
+  // count and the other 30 the cell.
+  private static long pack(int found, int cell)
+  {
+    return (long) (cell + 1) << 2 | Math.min(found, 2);
+  }
+  
+  private static int linesFound(long scan, int player)
+  {
+    return (int) (scan >>> (32 * player)) & 3;
+  }
+  
+  private static int cellFound(long scan, int player)
+  {
+    return ((int) (scan >>> (32 * player + 2)) & MAX_CELLS) - 1;
+  }
   
   /*
-   * Method: lookWin()
-   * Purpose: This method determines if the O character can win
-   * at the tictactoegame object. This happens if three O's align 
-   * on the board. This method determines if it is possible and if so at
-   * what location it is possible to win. There are 8 ways to win tictactoe 
-   * and each way has 3 variations where 2 align and a winning spot is available.
-   * 
-   * Notes: There are 2 return situations:
-   *  1. if a winning situation is found, return the winning position
-   *  2. if there are no winning situations, return -1
+   * Method: move()
+   * Purpose: This method is used to return a cell on a tic tac toe board.
+   * A position 1 through 9 is entered as an argument and the cell
+   * (row * 3 + col) corresponding to that position is returned.
    */
-  private int lookWin(TicTacToeGame g) 
-  { 
-    int blockPosition = -1;
-    
-    // ---------- 1 4 7 ---------------------
-    if (g.isO(1) && g.isO(4))
-    {
-      if (g.available(2,0))
-        blockPosition = 7;
-    }
-    if (g.isO(1) && g.isO(7))
-    {
-      if (g.available(1,0))
-        blockPosition = 4;
-      
-    }
-    if (g.isO(7) && g.isO(4))
-    {
-      if (g.available(0,0))
-        blockPosition = 1;
-    }
-    // ---------- 1 4 7 ---------------------
-    
-    // ---------- 2 5 8 ---------------------
-    if (g.isO(2) && g.isO(5))
-    {
-      if (g.available(2,1))
-        blockPosition = 8;
-    }
-    if (g.isO(2) && g.isO(8))
-    {
-      if (g.available(1,1))
-        blockPosition = 5;
-    }
-    if (g.isO(5) && g.isO(8))
-    {
-      if (g.available(0,1))
-        blockPosition = 2;
-    }
-    // ---------- 2 5 8 ---------------------
-    
-    // ---------- 3 6 9 ---------------------
-    if (g.isO(3) && g.isO(6))
-    {
-      if (g.available(2,2))
-        blockPosition = 9;
-    }
-    if (g.isO(3) && g.isO(9))
-    {
-      if (g.available(1,2))
-        blockPosition = 6;
-    }
-    if (g.isO(6) && g.isO(9))
-    {
-      if (g.available(0,2))
-        blockPosition = 3;
-    }
-    // ---------- 3 6 9 ---------------------
-    
-    // ---------- 1 5 9 ---------------------
-    if (g.isO(1) && g.isO(5))
-    {
-      if (g.available(2,2))
-        blockPosition = 9;
-    }
-    if (g.isO(1) && g.isO(9))
-    {
-      if (g.available(1,1))
-        blockPosition = 5;
-    }
-    if (g.isO(5) && g.isO(9))
-    {
-      if (g.available(0,0))
-        blockPosition = 1;
-    }
-    // ---------- 1 5 9 ---------------------
-    
-    // ---------- 7 8 9 ---------------------
-    if (g.isO(7) && g.isO(8))
-    {
-      if (g.available(2,2))
-        blockPosition = 9;
-    }
-    if (g.isO(7) && g.isO(9))
-    {
-      if (g.available(2,1))
-        blockPosition = 8;
-    }
-    if (g.isO(8) && g.isO(9))
-    {
-      if (g.available(2,0))
-        blockPosition = 7;
-    }
-    // ---------- 7 8 9 ---------------------
-    
-    // ---------- 4 5 6 ---------------------
-    if (g.isO(4) && g.isO(5))
-    {
-      if (g.available(1,2))
-        blockPosition = 6;
-    }
-    if (g.isO(4) && g.isO(6))
-    {
-      if (g.available(1,1))
-        blockPosition = 5;
-    }
-    if (g.isO(5) && g.isO(6))
-    {
-      if (g.available(1,0))
-        blockPosition = 4;
-    }
-    // ---------- 4 5 6 ---------------------  
-    
-    // ---------- 1 2 3 ---------------------
-    if (g.isO(1) && g.isO(2))
-    {
-      if (g.available(0,2))
-        blockPosition = 3;
-    }
-    if (g.isO(1) && g.isO(3))
-    {
-      if (g.available(0,1))
-        blockPosition = 2;
-    }
-    if (g.isO(2) && g.isO(3))
-    {
-      if (g.available(0,0))
-        blockPosition = 1;
-    }
-    // ---------- 1 2 3 ---------------------
-    
-    // ---------- 7 5 3 ---------------------
-    if (g.isO(7) && g.isO(5))
-    {
-      if (g.available(0,2))
-        blockPosition = 3;
-    }
-    if (g.isO(7) && g.isO(3))
-    {
-      if (g.available(1,1))
-        blockPosition = 5;
-    }
-    if (g.isO(5) && g.isO(3))
-    {
-      if (g.available(2,0))
-        blockPosition = 7;
-    }
-    // ---------- 7 5 3 ---------------------
-    
-    return blockPosition;
+  private int move(int move) 
+  {
+    return move - 1;
   }
   
   
-}
\ No newline at end of file
+}
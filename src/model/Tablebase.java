@@ -0,0 +1,124 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The value of every reachable position on a board of up to 16 cells, as
+ * worked out by TablebaseSolver, read from a file mapped into memory.
+ *
+ * A position's index is its board read as a base 3 number, one digit per
+ * cell with 0 for empty, 1 for X and 2 for O, so every position has its own
+ * index and the index of the position after a move is the index before it
+ * plus 1 or 2 times a power of 3. Each index has a 2 bit value for the
+ * player to move, four to a byte, low bits first:
+ *
+ *    UNKNOWN  the position can not come up in a game
+ *    LOSS     the player to move loses against perfect play
+ *    DRAW     neither side can force a win
+ *    WIN      the player to move can force a win
+ *
+ * A 4x4 table is 3^16 / 4 bytes, a little under 11 MB. The file starts
+ * with a header of five ints, "TTTV", the format version, rows, cols and
+ * k, padded to 32 bytes.
+ *
+ * @author Alex
+ */
+public class Tablebase implements Closeable {
+
+  public static final int UNKNOWN = 0;
+  public static final int LOSS = 1;
+  public static final int DRAW = 2;
+  public static final int WIN = 3;
+
+  public static final int MAGIC = 0x54545456; // "TTTV"
+  public static final int VERSION = 1;
+  static final int HEADER_SIZE = 32;
+  static final int MAX_CELLS = 16;
+
+  private final BoardGeometry geometry;
+  private final int[] base3;
+  private final FileChannel channel;
+  private MappedByteBuffer data;
+
+  public Tablebase(Path path) throws IOException {
+    channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      if (channel.size() < HEADER_SIZE)
+        throw new IOException("Not a tablebase");
+      data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (data.getInt(0) != MAGIC)
+        throw new IOException("Not a tablebase");
+      if (data.getInt(4) != VERSION)
+        throw new IOException("Unknown tablebase version " + data.getInt(4));
+      try {
+        geometry = BoardGeometry.of(data.getInt(8), data.getInt(12), data.getInt(16));
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Bad board in tablebase: " + e.getMessage());
+      }
+      if (geometry.cells() > MAX_CELLS || channel.size() < HEADER_SIZE + bytesFor(geometry.cells()))
+        throw new IOException("Tablebase is cut short");
+      base3 = base3(geometry.cells());
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public BoardGeometry getGeometry() {
+    return geometry;
+  }
+
+  /**
+   * @return LOSS, DRAW or WIN for the player to move in game, or UNKNOWN
+   *         if the game is another shape
+   */
+  public int value(TicTacToeGame game) {
+    if (game.getGeometry() != geometry)
+      return UNKNOWN;
+    return value(index(base3, game));
+  }
+
+  public int value(int index) {
+    if (data == null)
+      throw new IllegalStateException("Tablebase is closed");
+    return (data.get(HEADER_SIZE + (index >>> 2)) >>> ((index & 3) * 2)) & 3;
+  }
+
+  @Override
+  public void close() throws IOException {
+    data = null;
+    channel.close();
+  }
+
+  // base3[mask] is the base 3 number with a 1 for each cell in mask
+  static int[] base3(int cells) {
+    int[] result = new int[1 << cells];
+    for (int mask = 0; mask < result.length; mask++) {
+      int index = 0;
+      for (int cell = cells - 1; cell >= 0; cell--)
+        index = index * 3 + ((mask >>> cell) & 1);
+      result[mask] = index;
+    }
+    return result;
+  }
+
+  static int index(int[] base3, TicTacToeGame game) {
+    return base3[(int) game.bitsOf('X')[0]] + 2 * base3[(int) game.bitsOf('O')[0]];
+  }
+
+  static int positions(int cells) {
+    int result = 1;
+    for (int i = 0; i < cells; i++)
+      result *= 3;
+    return result;
+  }
+
+  static int bytesFor(int cells) {
+    return (positions(cells) + 3) / 4;
+  }
+}
@@ -0,0 +1,60 @@
+package model;
+
+/**
+ * Plays perfectly from a Tablebase: a move that leaves the other player
+ * lost if there is one, taking an immediate win first, else a move that
+ * keeps the draw, else any move. Boards the table is not for are played
+ * by a NegamaxAI.
+ *
+ * @author Alex
+ */
+public class TablebaseAI implements TicTacToeStrategy {
+
+  private final Tablebase table;
+  private final int[] base3;
+  private NegamaxAI otherBoards;
+
+  public TablebaseAI(Tablebase table) {
+    this.table = table;
+    base3 = Tablebase.base3(table.getGeometry().cells());
+  }
+
+  @Override
+  public int desiredCell(TicTacToeGame theGame) {
+    if (theGame.maxMovesRemaining() == 0)
+      throw new IGotNowhereToGoException("Invalid Move");
+    BoardGeometry geometry = theGame.getGeometry();
+    if (geometry != table.getGeometry()) {
+      if (otherBoards == null)
+        otherBoards = new NegamaxAI();
+      return otherBoards.desiredCell(theGame);
+    }
+
+    int index = Tablebase.index(base3, theGame);
+    int step = theGame.getMoveNumber() % 2 == 0 ? 1 : 2;
+    long[] mine = theGame.bitsOf(step == 1 ? 'X' : 'O').clone();
+    int best = -1;
+    int bestRank = -1;
+    for (int i = 0; i < theGame.maxMovesRemaining(); i++) {
+      int cell = theGame.availableCell(i);
+      int rank;
+      switch (table.value(index + step * base3[1 << cell])) {
+      case Tablebase.LOSS:
+        mine[0] |= 1L << cell;
+        rank = geometry.completesLine(mine, cell) ? 4 : 3;
+        mine[0] &= ~(1L << cell);
+        break;
+      case Tablebase.DRAW:
+        rank = 2;
+        break;
+      default:
+        rank = 1;
+      }
+      if (rank > bestRank) {
+        bestRank = rank;
+        best = cell;
+      }
+    }
+    return best;
+  }
+}
@@ -0,0 +1,240 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Works out the value and the distance to the end of every reachable
+ * position on a board of up to 16 cells, such as 4x4, by retrograde
+ * analysis: since every move adds a piece, positions can be solved one
+ * layer of piece count at a time from the full board back to the empty
+ * one, each from the values of the layer after it.
+ *
+ * A first pass from the empty board forward marks which positions can come
+ * up in a game at all; the rest are left UNKNOWN. Positions are numbered
+ * the way Tablebase indexes them, and write() saves the values in its file
+ * format. The distances are only kept in memory.
+ *
+ * @author Alex
+ */
+public class TablebaseSolver {
+
+  private final BoardGeometry geometry;
+  private final int cells;
+  private final int[] base3;
+  private final int[] power3;
+  // hasLine[mask] is true when the cells in mask make k in a row
+  private final boolean[] hasLine;
+  private final byte[] values;
+  private final long[] reachable;
+  private final byte[] distances;
+  private long reachableCount;
+
+  /**
+   * @throws IllegalArgumentException if the board has more than 16 cells
+   */
+  public TablebaseSolver(int rows, int cols, int k) {
+    geometry = BoardGeometry.of(rows, cols, k);
+    cells = geometry.cells();
+    if (cells > Tablebase.MAX_CELLS)
+      throw new IllegalArgumentException("No tablebase for " + geometry + ", 16 cells at most");
+    base3 = Tablebase.base3(cells);
+    power3 = new int[cells];
+    for (int cell = 0; cell < cells; cell++)
+      power3[cell] = base3[1 << cell];
+    hasLine = new boolean[1 << cells];
+    long[] lines = new long[geometry.lineCount()];
+    for (int line = 0; line < lines.length; line++)
+      for (int cell : geometry.lineCells(line))
+        lines[line] |= 1L << cell;
+    for (int mask = 0; mask < hasLine.length; mask++)
+      for (long line : lines)
+        if ((mask & line) == line) {
+          hasLine[mask] = true;
+          break;
+        }
+    int positions = Tablebase.positions(cells);
+    values = new byte[Tablebase.bytesFor(cells)];
+    reachable = new long[(positions + 63) / 64];
+    distances = new byte[positions];
+  }
+
+  /*---------------------------------------------
+   * Method: solve
+   * Purpose: mark the reachable positions going forward, then solve
+   * them going back, one layer of piece count at a time
+   * ----------------------------------------------*/
+  public TablebaseSolver solve() {
+    reachableCount = 0;
+    setReachable(0);
+    for (int pieces = 0; pieces <= cells; pieces++)
+      forward(pieces);
+    for (int pieces = cells; pieces >= 0; pieces--)
+      backward(pieces);
+    return this;
+  }
+
+  // Visit every position with this many pieces: X has the odd one out
+  private interface Visitor {
+    void visit(int x, int o, int index);
+  }
+
+  private void layer(int pieces, Visitor visitor) {
+    int xCount = (pieces + 1) / 2;
+    int oCount = pieces / 2;
+    int all = (1 << cells) - 1;
+    for (int x = 0; x <= all; x++) {
+      if (Integer.bitCount(x) != xCount)
+        continue;
+      int free = all & ~x;
+      // Every subset of the free cells, the empty one last
+      for (int o = free;; o = (o - 1) & free) {
+        if (Integer.bitCount(o) == oCount)
+          visitor.visit(x, o, base3[x] + 2 * base3[o]);
+        if (o == 0)
+          break;
+      }
+    }
+  }
+
+  private void forward(int pieces) {
+    int step = pieces % 2 == 0 ? 1 : 2; // X moves next after an even number
+    layer(pieces, (x, o, index) -> {
+      if (!isReachable(index))
+        return;
+      reachableCount++;
+      if (hasLine[x] || hasLine[o])
+        return;
+      int taken = x | o;
+      for (int cell = 0; cell < cells; cell++)
+        if ((taken & (1 << cell)) == 0)
+          setReachable(index + step * power3[cell]);
+    });
+  }
+
+  private void backward(int pieces) {
+    int step = pieces % 2 == 0 ? 1 : 2;
+    layer(pieces, (x, o, index) -> {
+      if (!isReachable(index))
+        return;
+      if (hasLine[x] || hasLine[o]) {
+        // The player who just moved made a line
+        setValue(index, Tablebase.LOSS, 0);
+        return;
+      }
+      if (pieces == cells) {
+        setValue(index, Tablebase.DRAW, 0);
+        return;
+      }
+      // The best for the player to move is the worst for the other player
+      int best = Tablebase.LOSS;
+      int quickestWin = Integer.MAX_VALUE;
+      int slowestLoss = 0;
+      int taken = x | o;
+      for (int cell = 0; cell < cells; cell++) {
+        if ((taken & (1 << cell)) != 0)
+          continue;
+        int child = index + step * power3[cell];
+        int theirs = value(child);
+        int distance = distances[child];
+        if (theirs == Tablebase.LOSS) {
+          best = Tablebase.WIN;
+          quickestWin = Math.min(quickestWin, distance);
+        } else if (theirs == Tablebase.DRAW) {
+          if (best == Tablebase.LOSS)
+            best = Tablebase.DRAW;
+        } else
+          slowestLoss = Math.max(slowestLoss, distance);
+      }
+      if (best == Tablebase.WIN)
+        setValue(index, best, quickestWin + 1);
+      else if (best == Tablebase.DRAW)
+        setValue(index, best, cells - pieces);
+      else
+        setValue(index, best, slowestLoss + 1);
+    });
+  }
+
+  private boolean isReachable(int index) {
+    return (reachable[index >>> 6] & (1L << index)) != 0;
+  }
+
+  private void setReachable(int index) {
+    reachable[index >>> 6] |= 1L << index;
+  }
+
+  private void setValue(int index, int value, int distance) {
+    int shift = (index & 3) * 2;
+    values[index >>> 2] = (byte) (values[index >>> 2] & ~(3 << shift) | value << shift);
+    distances[index] = (byte) distance;
+  }
+
+  public BoardGeometry getGeometry() {
+    return geometry;
+  }
+
+  // The number of positions that can come up in a game
+  public long getReachableCount() {
+    return reachableCount;
+  }
+
+  // LOSS, DRAW or WIN for the player to move, or UNKNOWN if unreachable
+  public int value(int index) {
+    return (values[index >>> 2] >>> ((index & 3) * 2)) & 3;
+  }
+
+  public int value(TicTacToeGame game) {
+    return value(Tablebase.index(base3, game));
+  }
+
+  /**
+   * @return the number of moves left in game when the winner wins as soon
+   *         and the loser loses as late as they can, or the number of
+   *         empty squares in a draw
+   */
+  public int distance(TicTacToeGame game) {
+    return distances[Tablebase.index(base3, game)];
+  }
+
+  /**
+   * Save the values as a Tablebase file
+   */
+  public void write(Path path) throws IOException {
+    try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_SIZE);
+      header.putInt(Tablebase.MAGIC).putInt(Tablebase.VERSION).putInt(geometry.rows())
+          .putInt(geometry.cols()).putInt(geometry.winLength());
+      header.clear();
+      ByteBuffer body = ByteBuffer.wrap(values);
+      while (header.hasRemaining() || body.hasRemaining())
+        out.write(new ByteBuffer[] { header, body });
+    }
+  }
+
+  /*---------------------------------------------
+   * Method: main
+   * Purpose: solve rows x cols with k in a row and write the table
+   * to a file, 4 4 4 tablebase.bin for example
+   * ----------------------------------------------*/
+  public static void main(String[] args) throws IOException {
+    if (args.length != 4) {
+      System.err.println("usage: TablebaseSolver rows cols k file");
+      System.exit(1);
+    }
+    long start = System.nanoTime();
+    TablebaseSolver solver = new TablebaseSolver(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+        Integer.parseInt(args[2])).solve();
+    solver.write(Paths.get(args[3]));
+    TicTacToeGame empty = new TicTacToeGame(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+        Integer.parseInt(args[2]));
+    String[] names = { "unknown", "loss", "draw", "win" };
+    System.out.printf("%s: %d reachable positions, %s for X in %d moves, solved in %.1f s%n",
+        solver.getGeometry(), solver.getReachableCount(), names[solver.value(empty)],
+        solver.distance(empty), (System.nanoTime() - start) / 1e9);
+  }
+}
@@ -1,28 +1,109 @@
 package model;
 
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+import controller.GameEvent;
 import controller.OurObservable;
+import metrics.GameMetrics;
+import metrics.MoveEvent;
 
+/**
+ * The tic tac toe model. The board is kept as two bitboards, one bit per cell
+ * (r * cols + c) for each player, so that win, tie and availability checks
+ * are a few mask operations. The char[][] returned by getTicTacToeBoard() is
+ * a view that is kept in step with the bitboards on every move.
+ *
+ * The default game is the classic 3x3 board with three in a row to win, but
+ * any rows x cols board with k in a row can be played.
+ */
 public class TicTacToeGame extends OurObservable {
   private char[][] board;
   private char nextChar;
   private int moveNumber;
   private int size;
   private ComputerPlayer computerPlayer;
+  private BoardGeometry geometry;
+
+  // One bit per cell for each player
+  private long[] xBits;
+  private long[] oBits;
+
+  // The move number on which each player first completed a line, -1 if never
+  private int xWonAt;
+  private int oWonAt;
+
+  // The first maxMovesRemaining() entries of empty are the open cells, in
+  // no particular order, and whereEmpty[cell] is where cell is in empty.
+  // Taking a cell moves the last open cell into its place.
+  private int[] empty;
+  private int[] whereEmpty;
+
+  // The cells taken so far in order, and where each one was in empty when
+  // it was taken, so that unmakeMove() can put everything back exactly
+  private int[] moves;
+  private int[] takenFrom;
+  // What getCurrentPlayerChar() returned before the first move of this game
+  private char charBeforeFirstMove;
+  // The xor of the geometry's Zobrist key for every piece on the board
+  private long zobristKey;
 
   public TicTacToeGame() {
-    size = 3;
+    this(3, 3, 3);
+  }
+
+  /**
+   * Play on a rows x cols board where k in a row wins
+   *
+   * @throws IllegalArgumentException if k does not fit on the board
+   */
+  public TicTacToeGame(int rows, int cols, int k) {
+    geometry = BoardGeometry.of(rows, cols, k);
+    size = rows;
     initializeBoard();
     computerPlayer = new ComputerPlayer();
   }
 
+  // A private copy of other: the same position and history, no observers
+  private TicTacToeGame(TicTacToeGame other) {
+    geometry = other.geometry;
+    size = other.size;
+    board = new char[other.board.length][];
+    for (int r = 0; r < board.length; r++)
+      board[r] = other.board[r].clone();
+    nextChar = other.nextChar;
+    charBeforeFirstMove = other.charBeforeFirstMove;
+    moveNumber = other.moveNumber;
+    zobristKey = other.zobristKey;
+    xBits = other.xBits.clone();
+    oBits = other.oBits.clone();
+    xWonAt = other.xWonAt;
+    oWonAt = other.oWonAt;
+    empty = other.empty.clone();
+    whereEmpty = other.whereEmpty.clone();
+    moves = other.moves.clone();
+    takenFrom = other.takenFrom.clone();
+    computerPlayer = new ComputerPlayer();
+    computerPlayer.setStrategy(other.computerPlayer.getStrategy());
+  }
+
+  /**
+   * @return a copy of this game that no one is observing, for a strategy to
+   *         search with makeMove and unmakeMove without disturbing the game
+   */
+  public TicTacToeGame copy() {
+    return new TicTacToeGame(this);
+  }
+
   public void startNewGame() {
     initializeBoard();
     // The state of this model just changed so tell any observer to update themselves
-    notifyObservers();
+    notifyObservers(GameEvent.GAME_RESET);
   }
 
   public void setComputerPlayerStrategy(TicTacToeStrategy AI) {
     this.computerPlayer.setStrategy(AI);
+    notifyObservers(GameEvent.STRATEGY_CHANGED);
   }
 
   public ComputerPlayer getComputerPlayer() {
@@ -30,27 +111,177 @@ public class TicTacToeGame extends OurObservable {
   }
 
   private void initializeBoard() {
-    board = new char[size][size];
-    for (int r = 0; r < size; r++)
-      for (int c = 0; c < size; c++)
-        board[r][c] = '_';
+    // A new game clears the arrays of the last one rather than replacing them
+    if (board == null) {
+      board = new char[geometry.rows()][geometry.cols()];
+      xBits = new long[(geometry.cells() + 63) / 64];
+      oBits = new long[xBits.length];
+      empty = new int[geometry.cells()];
+      whereEmpty = new int[geometry.cells()];
+      moves = new int[geometry.cells()];
+      takenFrom = new int[geometry.cells()];
+    }
+    for (int cell = 0; cell < empty.length; cell++) {
+      empty[cell] = cell;
+      whereEmpty[cell] = cell;
+    }
+    for (char[] row : board)
+      Arrays.fill(row, '_');
+    Arrays.fill(xBits, 0);
+    Arrays.fill(oBits, 0);
     moveNumber = 0;
+    zobristKey = 0;
+    xWonAt = -1;
+    oWonAt = -1;
+    charBeforeFirstMove = nextChar;
   }
 
-  // Precondition row and col are both in the range of 0 through 2
+  // Precondition row and col are on the board
   public boolean choose(int row, int col) {
     if (board[row][col] != '_')
       return false;
-    else {
-      if (moveNumber % 2 == 0)
-        nextChar = 'X';
-      else
-        nextChar = 'O';
-      board[row][col] = nextChar;
-      moveNumber++;
-      notifyObservers();
-      return true;
+    return choose(geometry.cell(row, col));
+  }
+
+  // Precondition cell (row * cols() + col) is on the board. Observers are
+  // told about the move and then, if it ended the game, about the result.
+  // A flight recording gets a tictactoe.Move event covering all of that.
+  public boolean choose(int cell) {
+    MoveEvent event = new MoveEvent();
+    event.begin();
+    if (!makeMove(cell))
+      return false;
+    if (GameMetrics.isEnabled()) {
+      GameMetrics.moveMade();
+      if (!stillRunning())
+        GameMetrics.gameOver(result());
+    }
+    if (hasObservers()) {
+      notifyObservers(GameEvent.moveMade(cell, geometry.row(cell), geometry.col(cell), nextChar));
+      if (!stillRunning())
+        notifyObservers(GameEvent.gameOver(result()));
+    }
+    if (event.shouldCommit()) {
+      event.rows = geometry.rows();
+      event.cols = geometry.cols();
+      event.winLength = geometry.winLength();
+      event.moveNumber = moveNumber;
+      event.cell = cell;
+      event.player = nextChar;
+      event.gameOver = !stillRunning();
+      event.commit();
+    }
+    return true;
+  }
+
+  // 'X' or 'O' for whoever won first, otherwise 'T'
+  private char result() {
+    return xWonAt >= 0 ? 'X' : oWonAt >= 0 ? 'O' : 'T';
+  }
+
+  /**
+   * Take cell for the player whose turn it is, the same as choose(int)
+   * except that observers are not notified. Meant for searching a copy().
+   *
+   * @return false if cell is already taken
+   */
+  public boolean makeMove(int cell) {
+    int row = geometry.row(cell);
+    int col = geometry.col(cell);
+    if (board[row][col] != '_')
+      return false;
+    long bit = 1L << cell;
+    if (moveNumber % 2 == 0) {
+      nextChar = 'X';
+      xBits[cell >>> 6] |= bit;
+      if (xWonAt < 0 && geometry.completesLine(xBits, cell))
+        xWonAt = moveNumber;
+    } else {
+      nextChar = 'O';
+      oBits[cell >>> 6] |= bit;
+      if (oWonAt < 0 && geometry.completesLine(oBits, cell))
+        oWonAt = moveNumber;
     }
+    board[row][col] = nextChar;
+    zobristKey ^= geometry.zobristKey(moveNumber % 2, cell);
+
+    // Swap cell to the end of the open cells and shorten the list by one
+    int index = whereEmpty[cell];
+    int last = empty[geometry.cells() - moveNumber - 1];
+    empty[index] = last;
+    whereEmpty[last] = index;
+    empty[geometry.cells() - moveNumber - 1] = cell;
+    whereEmpty[cell] = geometry.cells() - moveNumber - 1;
+    moves[moveNumber] = cell;
+    takenFrom[moveNumber] = index;
+    moveNumber++;
+    return true;
+  }
+
+  /**
+   * Take back the last move made by makeMove or choose, without notifying
+   * observers. Everything, including the order of the open cells, is put
+   * back as it was before that move.
+   *
+   * @throws IllegalStateException if no moves have been made
+   */
+  public void unmakeMove() {
+    if (moveNumber == 0)
+      throw new IllegalStateException("No move to take back");
+    moveNumber--;
+    int cell = moves[moveNumber];
+    long bit = 1L << cell;
+    xBits[cell >>> 6] &= ~bit;
+    oBits[cell >>> 6] &= ~bit;
+    if (xWonAt == moveNumber)
+      xWonAt = -1;
+    if (oWonAt == moveNumber)
+      oWonAt = -1;
+    board[geometry.row(cell)][geometry.col(cell)] = '_';
+    zobristKey ^= geometry.zobristKey(moveNumber % 2, cell);
+
+    // cell is just past the open cells; swap it back to where it was
+    int end = geometry.cells() - moveNumber - 1;
+    int index = takenFrom[moveNumber];
+    int moved = empty[index];
+    empty[index] = cell;
+    whereEmpty[cell] = index;
+    empty[end] = moved;
+    whereEmpty[moved] = end;
+
+    if (moveNumber == 0)
+      nextChar = charBeforeFirstMove;
+    else
+      nextChar = moveNumber % 2 == 1 ? 'X' : 'O';
+  }
+
+  // The number of moves made so far in this game
+  public int getMoveNumber() {
+    return moveNumber;
+  }
+
+  /**
+   * @param index from 0 up to but not including getMoveNumber()
+   * @return the cell taken by that move of this game
+   */
+  public int getMove(int index) {
+    if (index < 0 || index >= moveNumber)
+      throw new IndexOutOfBoundsException("Move " + index + " of " + moveNumber);
+    return moves[index];
+  }
+
+  // The cell of the last move, or -1 at the start of a game
+  public int getLastMove() {
+    return moveNumber == 0 ? -1 : moves[moveNumber - 1];
+  }
+
+  /**
+   * @return a 64 bit hash of the pieces on the board, kept up to date by
+   *         every move and take back, for caches keyed by position. Games
+   *         of the same shape hash the same position the same way.
+   */
+  public long getZobristKey() {
+    return zobristKey;
   }
 
   public char getCurrentPlayerChar() {
@@ -59,229 +290,110 @@ public class TicTacToeGame extends OurObservable {
 
   @Override
   public String toString() {
-    String result = "";
-    for (int r = 0; r < size; r++) {
-      for (int c = 0; c < size; c++)
-        result += " " + board[r][c] + " ";
-      result += "\n";
+    StringBuilder result = new StringBuilder();
+    for (int r = 0; r < geometry.rows(); r++) {
+      for (int c = 0; c < geometry.cols(); c++)
+        result.append(' ').append(board[r][c]).append(' ');
+      result.append('\n');
     }
-    return result;
+    return result.toString();
   }
 
+  // A view of the board; it is updated by choose() but writing to it
+  // does not change the state of the game
   public char[][] getTicTacToeBoard() {
     return board;
   }
 
   public boolean didWin(char playerChar) {
-    return wonByRow(playerChar) || wonByCol(playerChar) || wonByDiagonal(playerChar);
+    if (playerChar == 'X')
+      return xWonAt >= 0;
+    if (playerChar == 'O')
+      return oWonAt >= 0;
+    return false;
   }
 
-  private boolean wonByRow(char playerChar) {
-    for (int r = 0; r < size; r++) {
-      int rowSum = 0;
-      for (int c = 0; c < size; c++)
-        if (board[r][c] == playerChar)
-          rowSum++;
-      if (rowSum == size)
-        return true;
-    }
-    return false;
+  public boolean tied() {
+    return moveNumber == geometry.cells() && xWonAt < 0 && oWonAt < 0;
   }
 
-  private boolean wonByCol(char playerChar) {
-    for (int c = 0; c < size; c++) {
-      int colSum = 0;
-      for (int r = 0; r < size; r++)
-        if (board[r][c] == playerChar)
-          colSum++;
-      if (colSum == size)
-        return true;
-    }
-    return false;
+  public int maxMovesRemaining() {
+    return geometry.cells() - moveNumber;
   }
 
-  private boolean wonByDiagonal(char playerChar) {
-    // Check Diagonal from upper left to lower right
-    int sum = 0;
-    for (int r = 0; r < size; r++)
-      if (board[r][r] == playerChar)
-        sum++;
-    if (sum == size)
-      return true;
-
-    // Check Diagonal from upper right to lower left
-    sum = 0;
-    for (int r = size - 1; r >= 0; r--)
-      if (board[size - r - 1][r] == playerChar)
-        sum++;
-    if (sum == size)
-      return true;
-
-    // No win on either diagonal
-    return false;
+  // The number of rows, which is the width of the board as well unless
+  // the game was constructed with a different number of columns
+  public int size() {
+    return size;
   }
 
-  public boolean tied() {
-    return maxMovesRemaining() == 0 && !didWin('X') && !didWin('O');
+  public int rows() {
+    return geometry.rows();
   }
 
-  public int maxMovesRemaining() {
-    int result = 0;
-    for (int r = 0; r < size; r++)
-      for (int c = 0; c < size; c++)
-        if (board[r][c] == '_')
-          result++;
-    return result;
+  public int cols() {
+    return geometry.cols();
   }
 
-  public int size() {
-    return size;
+  // How many in a row it takes to win
+  public int winLength() {
+    return geometry.winLength();
+  }
+
+  public BoardGeometry getGeometry() {
+    return geometry;
+  }
+
+  // The bitboard of one player's squares for strategies in this package,
+  // which must not modify it
+  long[] bitsOf(char playerChar) {
+    return playerChar == 'X' ? xBits : oBits;
   }
 
   public boolean available(int r, int c) {
-    return board[r][c] == '_';
+    return available(geometry.cell(r, c));
+  }
+
+  public boolean available(int cell) {
+    return ((xBits[cell >>> 6] | oBits[cell >>> 6]) & (1L << cell)) == 0;
+  }
+
+  /**
+   * @param index from 0 up to but not including maxMovesRemaining()
+   * @return one of the open cells; each index gives a different one
+   */
+  public int availableCell(int index) {
+    if (index < 0 || index >= maxMovesRemaining())
+      throw new IndexOutOfBoundsException("Open cell " + index + " of " + maxMovesRemaining());
+    return empty[index];
+  }
+
+  /**
+   * @return an open cell chosen uniformly at random, in constant time
+   * @throws IGotNowhereToGoException if the board is full
+   */
+  public int randomAvailableCell(RandomGenerator random) {
+    if (maxMovesRemaining() == 0)
+      throw new IGotNowhereToGoException("Invalid Move");
+    return empty[random.nextInt(maxMovesRemaining())];
   }
 
   public boolean stillRunning() {
-    return !tied() && !didWin('X') && !didWin('O');
-  }
-  
-  
-  // checks if position is X
-  public boolean isX(int pos)
-  {
-	  if (pos == 1)
-	  {
-		  if (board[0][0] == 'X')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 2)
-	  {
-		  if (board[0][1] == 'X')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 3)
-	  {
-		  if (board[0][2] == 'X')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 4)
-	  {
-		  if (board[1][0] == 'X')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 5)
-	  {
-		  if (board[1][1] == 'X')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 6)
-	  {
-		  if (board[1][2] == 'X')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 7)
-	  {
-		  if (board[2][0] == 'X')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 8)
-	  {
-		  if (board[2][1] == 'X')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 9)
-	  {
-		  if (board[2][2] == 'X')
-			  return true;
-		  else
-			  return false;
-	  }
-	  return false;
-  } // isX  
-  
- // checks if position is O
-  public boolean isO(int pos)
-  {
-	  if (pos == 1)
-	  {
-		  if (board[0][0] == 'O')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 2)
-	  {
-		  if (board[0][1] == 'O')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 3)
-	  {
-		  if (board[0][2] == 'O')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 4)
-	  {
-		  if (board[1][0] == 'O')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 5)
-	  {
-		  if (board[1][1] == 'O')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 6)
-	  {
-		  if (board[1][2] == 'O')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 7)
-	  {
-		  if (board[2][0] == 'O')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 8)
-	  {
-		  if (board[2][1] == 'O')
-			  return true;
-		  else
-			  return false;
-	  }
-	  if (pos == 9)
-	  {
-		  if (board[2][2] == 'O')
-			  return true;
-		  else
-			  return false;
-	  }
-	  return false;
+    return xWonAt < 0 && oWonAt < 0 && moveNumber < geometry.cells();
+  }
+
+  // checks if position is X, positions are numbered 1 through rows * cols
+  // going across each row
+  public boolean isX(int pos) {
+    if (pos < 1 || pos > geometry.cells())
+      return false;
+    return BoardGeometry.isSet(xBits, pos - 1);
+  } // isX
+
+  // checks if position is O
+  public boolean isO(int pos) {
+    if (pos < 1 || pos > geometry.cells())
+      return false;
+    return BoardGeometry.isSet(oBits, pos - 1);
   } // isO
-}
\ No newline at end of file
+}
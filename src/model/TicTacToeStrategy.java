@@ -7,7 +7,21 @@ import java.awt.Point;
 
 public interface TicTacToeStrategy {
 
-  // The ComputerPlayer has access to "seeing" anything about 
-  // the game when it is given the game as an argument.
-  public Point desiredMove(TicTacToeGame theGame);
-}
\ No newline at end of file
+  // The ComputerPlayer has access to "seeing" anything about the 
+  // game when it is given the game as an argument. The move is
+  // returned as a cell, row * theGame.cols() + col, so that asking
+  // for a move does not have to create an object.
+  public int desiredCell(TicTacToeGame theGame);
+
+  // The same move as a Point (x is the row, y the column) for the views
+  public default Point desiredMove(TicTacToeGame theGame) {
+    int cell = desiredCell(theGame);
+    return new Point(cell / theGame.cols(), cell % theGame.cols());
+  }
+
+  // The number of positions looked at to choose the last move, for the
+  // metrics; strategies that do not search leave it at 0
+  public default long getNodesSearched() {
+    return 0;
+  }
+}
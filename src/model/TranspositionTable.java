@@ -0,0 +1,85 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size hash table of search results keyed by a 64 bit position hash.
+ * Each slot remembers the score found for a position, how deep it was
+ * searched, whether the score is exact or only a bound, and the best move.
+ * A new result always replaces whatever was in its slot.
+ *
+ * @author Alex
+ */
+public final class TranspositionTable {
+
+  public static final int EXACT = 0;
+  public static final int LOWER_BOUND = 1;
+  public static final int UPPER_BOUND = 2;
+
+  // The most cells a board can have for its moves to fit in a slot
+  public static final int MAX_CELLS = (1 << 29) - 2;
+
+  private static final long USED = 1L << 63;
+
+  private final long[] keys;
+  private final int[] scores;
+  // depth in bits 0-31, flag in 32-33, best move + 1 in bits 34-62 and
+  // bit 63 set once the slot has been used
+  private final long[] info;
+  private final int mask;
+
+  /**
+   * @param log2Size the table holds 2^log2Size entries
+   */
+  public TranspositionTable(int log2Size) {
+    if (log2Size < 1 || log2Size > 28)
+      throw new IllegalArgumentException("Table size 2^" + log2Size + " out of range");
+    keys = new long[1 << log2Size];
+    scores = new int[keys.length];
+    info = new long[keys.length];
+    mask = keys.length - 1;
+  }
+
+  // Return the slot holding key, or -1 if it is not in the table
+  public int probe(long key) {
+    int slot = index(key);
+    return keys[slot] == key && (info[slot] & USED) != 0 ? slot : -1;
+  }
+
+  public void store(long key, int score, int depth, int flag, int bestMove) {
+    int slot = index(key);
+    keys[slot] = key;
+    scores[slot] = score;
+    info[slot] = USED | (depth & 0xFFFFFFFFL) | ((long) flag << 32) | ((long) (bestMove + 1) << 34);
+  }
+
+  public int score(int slot) {
+    return scores[slot];
+  }
+
+  public int depth(int slot) {
+    return (int) info[slot];
+  }
+
+  public int flag(int slot) {
+    return (int) (info[slot] >>> 32) & 3;
+  }
+
+  // The best move found for the position in this slot, -1 if none
+  public int bestMove(int slot) {
+    return (int) ((info[slot] >>> 34) & 0x1FFFFFFF) - 1;
+  }
+
+  public void clear() {
+    Arrays.fill(keys, 0);
+    Arrays.fill(info, 0);
+  }
+
+  public int capacity() {
+    return keys.length;
+  }
+
+  private int index(long key) {
+    return (int) (key ^ (key >>> 32)) & mask;
+  }
+}
@@ -0,0 +1,56 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * The layout of a game log file, shared by GameLogWriter and GameLogReader.
+ *
+ * A log is a 16 byte header followed by frames, one per game:
+ *
+ *    header  "TTTL", the format version, the region size, 0 (4 ints)
+ *    frame   a varint payload length, the GameRecord's binary form, and
+ *            the CRC32C of the length and payload (int)
+ *
+ * The file is written through memory mapped regions of a fixed size, and
+ * no frame crosses from one region into the next; the unused end of a
+ * region is left as zeros. Since a frame never starts with a zero byte, a
+ * reader meeting one skips to the next region. A frame that is cut short
+ * or fails its checksum marks the end of the log, so after a crash a log
+ * reads back as every game before the first one that was not completely
+ * written.
+ *
+ * @author Alex
+ */
+public final class GameLog {
+
+  public static final int MAGIC = 0x5454544C; // "TTTL"
+  public static final int VERSION = 1;
+  public static final int HEADER_SIZE = 16;
+  public static final int DEFAULT_REGION_SIZE = 1 << 26;
+  static final int MIN_REGION_SIZE = 1 << 12;
+  static final int CHECKSUM_SIZE = 4;
+
+  private GameLog() {
+  }
+
+  static void checkRegionSize(int regionSize) throws IOException {
+    if (regionSize < MIN_REGION_SIZE || regionSize > 1 << 30)
+      throw new IOException("Region size out of range: " + regionSize);
+  }
+
+  static void writeHeader(ByteBuffer out, int regionSize) {
+    out.putInt(MAGIC).putInt(VERSION).putInt(regionSize).putInt(0);
+  }
+
+  // The CRC32C of buffer from start up to end, leaving its position at end
+  static int checksum(CRC32C crc, ByteBuffer buffer, int start, int end) {
+    int limit = buffer.limit();
+    buffer.limit(end).position(start);
+    crc.reset();
+    crc.update(buffer);
+    buffer.limit(limit);
+    return (int) crc.getValue();
+  }
+}
@@ -0,0 +1,143 @@
+package persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the games of a GameLog file in the order they were appended, one
+ * mapped region at a time. Reading stops at the end of the file or at the
+ * first frame that is incomplete or fails its checksum.
+ *
+ * @author Alex
+ */
+public class GameLogReader implements Closeable {
+
+  private final FileChannel channel;
+  private final boolean ownsChannel;
+  private final int regionSize;
+  private final long size;
+  private final CRC32C crc = new CRC32C();
+  private MappedByteBuffer region; // null once the end is reached
+  private long regionStart;
+  private long end = GameLog.HEADER_SIZE;
+  private long games;
+
+  public GameLogReader(Path path) throws IOException {
+    this(FileChannel.open(path, StandardOpenOption.READ), true);
+  }
+
+  // Read from a channel the caller keeps open, as GameLogWriter does
+  GameLogReader(FileChannel channel) throws IOException {
+    this(channel, false);
+  }
+
+  private GameLogReader(FileChannel channel, boolean ownsChannel) throws IOException {
+    this.channel = channel;
+    this.ownsChannel = ownsChannel;
+    try {
+      size = channel.size();
+      ByteBuffer header = ByteBuffer.allocate(GameLog.HEADER_SIZE);
+      while (header.hasRemaining() && channel.read(header, header.position()) > 0)
+        ;
+      header.flip();
+      if (header.remaining() < GameLog.HEADER_SIZE || header.getInt() != GameLog.MAGIC)
+        throw new IOException("Not a game log");
+      int version = header.getInt();
+      if (version != GameLog.VERSION)
+        throw new IOException("Unknown game log version " + version);
+      regionSize = header.getInt();
+      GameLog.checkRegionSize(regionSize);
+      map(0);
+      region.position(GameLog.HEADER_SIZE);
+    } catch (IOException | RuntimeException e) {
+      if (ownsChannel)
+        channel.close();
+      throw e;
+    }
+  }
+
+  private void map(long start) throws IOException {
+    regionStart = start;
+    region = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize, size - start));
+  }
+
+  /**
+   * @return the next game, or null at the end of the log
+   */
+  public GameRecord read() throws IOException {
+    while (region != null) {
+      int start = region.position();
+      if (start < region.limit() && region.get(start) != 0) {
+        GameRecord game = frameAt(start);
+        if (game == null) {
+          // Cut short or corrupt: the log ends at the last good frame
+          region = null;
+          return null;
+        }
+        end = regionStart + region.position();
+        games++;
+        return game;
+      }
+      // Nothing more in this region; go on to the next one if there is one
+      long next = regionStart + regionSize;
+      if (next >= size)
+        region = null;
+      else
+        map(next);
+    }
+    return null;
+  }
+
+  // The game in the frame at start, leaving the position after it, or
+  // null if the frame is not complete and intact
+  private GameRecord frameAt(int start) {
+    try {
+      int payload = GameRecord.getVarint(region);
+      int payloadStart = region.position();
+      int payloadEnd = payloadStart + payload;
+      if (payload < 1 || payloadEnd > region.limit() - GameLog.CHECKSUM_SIZE)
+        return null;
+      if (GameLog.checksum(crc, region, start, payloadEnd) != region.getInt(payloadEnd))
+        return null;
+      int limit = region.limit();
+      region.limit(payloadEnd).position(payloadStart);
+      GameRecord game;
+      try {
+        game = GameRecord.decode(region);
+      } finally {
+        region.limit(limit);
+      }
+      region.position(payloadEnd + GameLog.CHECKSUM_SIZE);
+      return game;
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  public long getGamesRead() {
+    return games;
+  }
+
+  // Where the last game read ends in the file
+  public long getEnd() {
+    return end;
+  }
+
+  public int getRegionSize() {
+    return regionSize;
+  }
+
+  @Override
+  public void close() throws IOException {
+    region = null;
+    if (ownsChannel)
+      channel.close();
+  }
+}
@@ -0,0 +1,136 @@
+package persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Appends games to a GameLog file through a memory mapped region, so an
+ * append is a few stores into memory and the operating system writes the
+ * pages out. flush() forces them to disk; a region that fills up is
+ * forced as the next one is mapped. Opening an existing log carries
+ * on after its last complete game, overwriting anything a crash left
+ * half written.
+ *
+ * Appends are synchronized, so one writer can be shared by many threads.
+ *
+ * @author Alex
+ */
+public class GameLogWriter implements Closeable {
+
+  private final FileChannel channel;
+  private final int regionSize;
+  private final CRC32C crc = new CRC32C();
+  private MappedByteBuffer region;
+  private long regionStart;
+  private long games;
+
+  public GameLogWriter(Path path) throws IOException {
+    this(path, GameLog.DEFAULT_REGION_SIZE);
+  }
+
+  /**
+   * @param regionSize bytes mapped at a time by a new log; an existing log
+   *        keeps the region size it was created with
+   */
+  public GameLogWriter(Path path, int regionSize) throws IOException {
+    GameLog.checkRegionSize(regionSize);
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    try {
+      if (channel.size() == 0) {
+        this.regionSize = regionSize;
+        map(0);
+        GameLog.writeHeader(region, regionSize);
+      } else {
+        GameLogReader reader = new GameLogReader(channel);
+        while (reader.read() != null)
+          ;
+        this.regionSize = reader.getRegionSize();
+        games = reader.getGamesRead();
+        long end = reader.getEnd();
+        map(end - end % this.regionSize);
+        region.position((int) (end - regionStart));
+        // Clear whatever follows the last complete game
+        while (region.hasRemaining())
+          region.put((byte) 0);
+        region.position((int) (end - regionStart));
+        if (channel.size() > regionStart + this.regionSize)
+          channel.truncate(regionStart + this.regionSize);
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private void map(long start) throws IOException {
+    regionStart = start;
+    region = channel.map(FileChannel.MapMode.READ_WRITE, start, regionSize);
+  }
+
+  /**
+   * Add one game to the end of the log
+   *
+   * @throws IllegalArgumentException if the game does not fit in a region
+   */
+  public synchronized void append(GameRecord game) throws IOException {
+    if (region == null)
+      throw new IOException("Log is closed");
+    int payload = game.encodedSize();
+    int size = GameRecord.varintSize(payload) + payload + GameLog.CHECKSUM_SIZE;
+    if (size > regionSize - GameLog.HEADER_SIZE)
+      throw new IllegalArgumentException("Game too big for a region: " + size + " bytes");
+    if (size > region.remaining()) {
+      // flush() only reaches the current region, so the full one is
+      // written out before it is let go of
+      region.force();
+      map(regionStart + regionSize);
+    }
+    int start = region.position();
+    GameRecord.putVarint(region, payload);
+    game.encode(region);
+    int checksum = GameLog.checksum(crc, region, start, region.position());
+    region.putInt(checksum);
+    games++;
+  }
+
+  // Games in the log, including those that were there when it was opened
+  public synchronized long getGames() {
+    return games;
+  }
+
+  // The length of the log in bytes
+  public synchronized long getEnd() {
+    return region == null ? 0 : regionStart + region.position();
+  }
+
+  /**
+   * Write every game appended so far to disk
+   */
+  public synchronized void flush() {
+    if (region != null)
+      region.force();
+  }
+
+  /**
+   * Flush and cut the file off after the last game
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (region == null)
+      return;
+    region.force();
+    long end = getEnd();
+    region = null;
+    try {
+      channel.truncate(end);
+    } finally {
+      channel.close();
+    }
+  }
+}
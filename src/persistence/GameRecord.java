@@ -0,0 +1,206 @@
+package persistence;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import model.TicTacToeGame;
+
+/**
+ * The moves of one game and the shape of its board, with a compact binary
+ * form for storing many of them. Only the moves are kept; the winner and
+ * every position along the way come back from replay().
+ *
+ * The binary form is a varint header of moveCount * 2 + 1 if the shape
+ * follows, or moveCount * 2 for the classic 3x3 board. The shape is three
+ * varints: rows, cols and k. Then come the moves, packed by board size:
+ *
+ *    up to 16 cells    one nibble per move, high nibble first
+ *    up to 256 cells   one byte per move
+ *    bigger boards     two bytes per move
+ *
+ * so a full classic game takes 6 bytes.
+ *
+ * @author Alex
+ */
+public final class GameRecord {
+
+  private final int rows;
+  private final int cols;
+  private final int k;
+  private final int[] moves;
+
+  /**
+   * @throws IllegalArgumentException if the shape is not a board or a move
+   *         is off it or taken twice
+   */
+  public GameRecord(int rows, int cols, int k, int[] moves) {
+    if (rows < 1 || cols < 1 || k < 1 || (long) rows * cols > 65536)
+      throw new IllegalArgumentException("No " + rows + "x" + cols + " board");
+    boolean[] taken = new boolean[rows * cols];
+    for (int cell : moves) {
+      if (cell < 0 || cell >= taken.length || taken[cell])
+        throw new IllegalArgumentException("Bad move " + cell + " on " + rows + "x" + cols);
+      taken[cell] = true;
+    }
+    this.rows = rows;
+    this.cols = cols;
+    this.k = k;
+    this.moves = moves.clone();
+  }
+
+  // The moves made so far in game
+  public static GameRecord of(TicTacToeGame game) {
+    int[] moves = new int[game.getMoveNumber()];
+    for (int i = 0; i < moves.length; i++)
+      moves[i] = game.getMove(i);
+    return new GameRecord(game.rows(), game.cols(), game.winLength(), moves);
+  }
+
+  public int rows() {
+    return rows;
+  }
+
+  public int cols() {
+    return cols;
+  }
+
+  public int winLength() {
+    return k;
+  }
+
+  public int moveCount() {
+    return moves.length;
+  }
+
+  public int move(int index) {
+    return moves[index];
+  }
+
+  /**
+   * @return a new game with every move played, and no observers
+   */
+  public TicTacToeGame replay() {
+    TicTacToeGame game = new TicTacToeGame(rows, cols, k);
+    for (int cell : moves)
+      game.makeMove(cell);
+    return game;
+  }
+
+  private boolean isClassic() {
+    return rows == 3 && cols == 3 && k == 3;
+  }
+
+  // Bits per move in the binary form
+  private static int moveBits(int cells) {
+    return cells <= 16 ? 4 : cells <= 256 ? 8 : 16;
+  }
+
+  public int encodedSize() {
+    int size = varintSize(moves.length * 2 + (isClassic() ? 0 : 1));
+    if (!isClassic())
+      size += varintSize(rows) + varintSize(cols) + varintSize(k);
+    return size + (moves.length * moveBits(rows * cols) + 7) / 8;
+  }
+
+  /**
+   * Write the binary form at out's position, moving it past what was written
+   */
+  public void encode(ByteBuffer out) {
+    putVarint(out, moves.length * 2 + (isClassic() ? 0 : 1));
+    if (!isClassic()) {
+      putVarint(out, rows);
+      putVarint(out, cols);
+      putVarint(out, k);
+    }
+    int bits = moveBits(rows * cols);
+    if (bits == 4) {
+      for (int i = 0; i < moves.length; i += 2)
+        out.put((byte) (moves[i] << 4 | (i + 1 < moves.length ? moves[i + 1] : 0)));
+    } else if (bits == 8) {
+      for (int cell : moves)
+        out.put((byte) cell);
+    } else {
+      for (int cell : moves)
+        out.putShort((short) cell);
+    }
+  }
+
+  /**
+   * Read one game in binary form from in's position
+   *
+   * @throws IllegalArgumentException if the bytes are not a game
+   */
+  public static GameRecord decode(ByteBuffer in) {
+    int header = getVarint(in);
+    int rows = 3, cols = 3, k = 3;
+    if ((header & 1) != 0) {
+      rows = getVarint(in);
+      cols = getVarint(in);
+      k = getVarint(in);
+    }
+    int[] moves = new int[header >>> 1];
+    if (rows < 1 || cols < 1 || (long) rows * cols > 65536 || moves.length > rows * cols)
+      throw new IllegalArgumentException("Not a game record");
+    int bits = moveBits(rows * cols);
+    if (bits == 4) {
+      for (int i = 0; i < moves.length; i += 2) {
+        int both = in.get() & 0xFF;
+        moves[i] = both >>> 4;
+        if (i + 1 < moves.length)
+          moves[i + 1] = both & 0xF;
+      }
+    } else if (bits == 8) {
+      for (int i = 0; i < moves.length; i++)
+        moves[i] = in.get() & 0xFF;
+    } else {
+      for (int i = 0; i < moves.length; i++)
+        moves[i] = in.getShort() & 0xFFFF;
+    }
+    return new GameRecord(rows, cols, k, moves);
+  }
+
+  static int varintSize(int value) {
+    int size = 1;
+    while ((value >>>= 7) != 0)
+      size++;
+    return size;
+  }
+
+  // Seven bits per byte, low bits first, with the top bit set on all but the last
+  static void putVarint(ByteBuffer out, int value) {
+    while ((value & ~0x7F) != 0) {
+      out.put((byte) (value & 0x7F | 0x80));
+      value >>>= 7;
+    }
+    out.put((byte) value);
+  }
+
+  static int getVarint(ByteBuffer in) {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int b = in.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0)
+        return value;
+    }
+    throw new IllegalArgumentException("Varint too long");
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof GameRecord))
+      return false;
+    GameRecord that = (GameRecord) other;
+    return rows == that.rows && cols == that.cols && k == that.k && Arrays.equals(moves, that.moves);
+  }
+
+  @Override
+  public int hashCode() {
+    return ((rows * 31 + cols) * 31 + k) * 31 + Arrays.hashCode(moves);
+  }
+
+  @Override
+  public String toString() {
+    return rows + "x" + cols + " k=" + k + " " + Arrays.toString(moves);
+  }
+}
@@ -0,0 +1,237 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import metrics.GameMetrics;
+import metrics.LatencyHistogram;
+import persistence.GameLogWriter;
+
+/**
+ * A headless server hosting many games against the computer at once, one
+ * Session per TCP connection, with no GUI and no observers. Each connection
+ * is served by its own thread: a virtual thread when the JVM has them, or a
+ * thread from a cached pool when it does not.
+ *
+ * The protocol is one command per line, each answered with one line:
+ *
+ *    NEW [rows cols k] [strategy]  OK rows cols k
+ *    MOVE row col                  OK row col state, the computer's reply
+ *                                  (-1 -1 if the game ended first) and one
+ *                                  of RUNNING X_WON O_WON TIE
+ *    BOARD                         BOARD and every square row by row
+ *    STATS                         STATS and the server's Stats
+ *    QUIT                          the server closes the connection
+ *
+ * Boards are at most 15x15. Anything the server can not do is answered
+ * with ERR and a reason. A new
+ * connection plays 3x3 against StopperAI until it asks for something else.
+ * Given a GameLogWriter, the server appends every game that is finished.
+ *
+ * @author Alex
+ */
+public class GameServer implements Closeable {
+
+  public static final int DEFAULT_PORT = 4321;
+  // How long the strategies that search may think about each move
+  public static final long MOVE_TIME_MILLIS = 100;
+
+  private final ServerSocket serverSocket;
+  private final ExecutorService connections;
+  private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+  private final Stats stats = new Stats();
+  private volatile GameLogWriter gameLog;
+  private volatile boolean closed;
+
+  /**
+   * Listen on the loopback address; port 0 picks any free port
+   */
+  public GameServer(int port) throws IOException {
+    this(InetAddress.getLoopbackAddress(), port);
+  }
+
+  public GameServer(InetAddress address, int port) throws IOException {
+    serverSocket = new ServerSocket(port, 1024, address);
+    connections = newConnectionExecutor();
+  }
+
+  /*---------------------------------------------
+   * Method: newConnectionExecutor
+   * Purpose: a thread per task, virtual if this JVM has them. The
+   * build targets Java 17, so the Java 21 method is looked up by name.
+   * ----------------------------------------------*/
+  static ExecutorService newConnectionExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      AtomicInteger count = new AtomicInteger();
+      return Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "GameServer-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * Start accepting connections on a thread of the server's own
+   *
+   * @return this server
+   */
+  public GameServer start() {
+    connections.execute(this::acceptAll);
+    return this;
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  public Stats getStats() {
+    return stats;
+  }
+
+  /**
+   * Append every game finished from now on to log, or stop if it is null.
+   * The server does not close the log.
+   */
+  public void setGameLog(GameLogWriter log) {
+    gameLog = log;
+  }
+
+  private void acceptAll() {
+    while (!closed) {
+      try {
+        Socket client = serverSocket.accept();
+        client.setTcpNoDelay(true);
+        clients.add(client);
+        connections.execute(() -> serve(client));
+      } catch (IOException e) {
+        if (!closed)
+          System.err.println("GameServer: " + e.getMessage());
+      }
+    }
+  }
+
+  private void serve(Socket client) {
+    stats.activeSessions.incrementAndGet();
+    stats.totalSessions.increment();
+    try (BufferedReader in = new BufferedReader(
+        new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+        Writer out = new PrintWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8))) {
+      Session session = new Session(stats, gameLog);
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (line.isBlank())
+          continue;
+        String reply = session.handle(line);
+        if (reply == null)
+          break;
+        out.write(reply);
+        out.write('\n');
+        out.flush();
+      }
+    } catch (IOException e) {
+      // The client went away; its session goes with it
+    } finally {
+      stats.activeSessions.decrementAndGet();
+      clients.remove(client);
+      try {
+        client.close();
+      } catch (IOException e) {
+        // Already closed
+      }
+    }
+  }
+
+  /**
+   * Stop accepting connections and drop every open one
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    serverSocket.close();
+    for (Socket client : clients)
+      client.close();
+    connections.shutdownNow();
+  }
+
+  /*---------------------------------------------
+   * Method: main
+   * Purpose: serve on the port given (4321 by default), publish the
+   * GameMetrics over JMX and print the stats every ten seconds
+   * ----------------------------------------------*/
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+    GameMetrics.setEnabled(true);
+    GameMetrics.registerMBeans();
+    try (GameServer server = new GameServer(port).start()) {
+      System.out.println("Serving tic tac toe on port " + server.getPort());
+      while (true) {
+        Thread.sleep(10000);
+        System.out.println(server.getStats());
+      }
+    }
+  }
+
+  /**
+   * Sessions, moves and move latency since the server started. A move is
+   * one MOVE command, from reading the player's square to choosing the
+   * computer's answer. Every count can be read while the server runs.
+   */
+  public static class Stats {
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final LongAdder totalSessions = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+    private final LatencyHistogram moveLatency = new LatencyHistogram();
+
+    void moved(long nanos) {
+      moves.increment();
+      moveLatency.record(nanos);
+    }
+
+    public int getActiveSessions() {
+      return activeSessions.get();
+    }
+
+    public long getTotalSessions() {
+      return totalSessions.sum();
+    }
+
+    public long getMoves() {
+      return moves.sum();
+    }
+
+    public double getMovesPerSecond() {
+      long nanos = System.nanoTime() - startNanos;
+      return nanos == 0 ? 0 : getMoves() * 1e9 / nanos;
+    }
+
+    // The 99th percentile of move latency in microseconds
+    public double getP99Micros() {
+      return moveLatency.getPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("sessions=%d total=%d moves=%d movesPerSec=%.1f p99Micros=%.1f",
+          getActiveSessions(), getTotalSessions(), getMoves(), getMovesPerSecond(), getP99Micros());
+    }
+  }
+}
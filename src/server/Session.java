@@ -0,0 +1,175 @@
+package server;
+
+import java.io.IOException;
+
+import model.IterativeDeepening;
+import model.MonteCarloAI;
+import model.NegamaxAI;
+import model.RandomAI;
+import model.SolvedTableAI;
+import model.StopperAI;
+import model.TicTacToeGame;
+import model.TicTacToeStrategy;
+import persistence.GameLogWriter;
+import persistence.GameRecord;
+
+/**
+ * One player's connection to the server: a game against a computer player
+ * and the commands that drive it. The human is always X and moves first,
+ * as in TicTacToeGUI, and every move gets the computer's answer straight
+ * back. Finished games are appended to the server's log, if it has one.
+ * A session is only used by the thread of its connection.
+ *
+ * @author Alex
+ */
+class Session {
+
+  // The largest board a client may ask for. Bigger boards would let one
+  // client use up the server's memory, and every shape asked for stays
+  // in BoardGeometry's cache for good.
+  static final int MAX_SIDE = 15;
+
+  private final GameServer.Stats stats;
+  private final GameLogWriter log; // null if games are not kept
+  private TicTacToeGame game;
+
+  Session(GameServer.Stats stats, GameLogWriter log) {
+    this.stats = stats;
+    this.log = log;
+    game = new TicTacToeGame();
+    game.setComputerPlayerStrategy(new StopperAI());
+  }
+
+  /*---------------------------------------------
+   * Method: handle
+   * Purpose: carry out one line of the protocol and return the
+   * reply, or null when the client is done
+   * ----------------------------------------------*/
+  String handle(String line) {
+    String[] words = line.trim().split("\\s+");
+    try {
+      switch (words[0].toUpperCase()) {
+      case "NEW":
+        return newGame(words);
+      case "MOVE":
+        return move(words);
+      case "BOARD":
+        return board();
+      case "STATS":
+        return "STATS " + stats;
+      case "QUIT":
+        return null;
+      default:
+        return "ERR unknown command " + words[0];
+      }
+    } catch (NumberFormatException e) {
+      return "ERR expected a number: " + e.getMessage();
+    } catch (IllegalArgumentException e) {
+      return "ERR " + e.getMessage();
+    } catch (RuntimeException e) {
+      // A bug in one command is no reason to drop the connection
+      return "ERR " + e;
+    }
+  }
+
+  // NEW [rows cols k] [strategy]
+  private String newGame(String[] words) {
+    String strategyName = "stopper";
+    if (words.length == 2 || words.length == 5)
+      strategyName = words[words.length - 1];
+    else if (words.length != 1 && words.length != 4)
+      throw new IllegalArgumentException("usage: NEW [rows cols k] [strategy]");
+    TicTacToeGame next = game;
+    if (words.length >= 4) {
+      int rows = Integer.parseInt(words[1]);
+      int cols = Integer.parseInt(words[2]);
+      if (rows > MAX_SIDE || cols > MAX_SIDE)
+        throw new IllegalArgumentException("boards are at most " + MAX_SIDE + "x" + MAX_SIDE);
+      next = new TicTacToeGame(rows, cols, Integer.parseInt(words[3]));
+    }
+    next.setComputerPlayerStrategy(strategy(strategyName));
+    next.startNewGame();
+    game = next;
+    return "OK " + game.rows() + " " + game.cols() + " " + game.winLength();
+  }
+
+  /*---------------------------------------------
+   * Method: strategy
+   * Purpose: the computer player for a name sent by a client, sized
+   * for a server running many games at once
+   * ----------------------------------------------*/
+  static TicTacToeStrategy strategy(String name) {
+    switch (name.toLowerCase()) {
+    case "random":
+      return new RandomAI();
+    case "stopper":
+      return new StopperAI();
+    case "solved":
+      return new SolvedTableAI();
+    case "negamax":
+      return new IterativeDeepening(new NegamaxAI(9, 12), GameServer.MOVE_TIME_MILLIS, 9);
+    case "montecarlo":
+      // A 4096 position tree is 80KB, where the default is 5MB
+      return new MonteCarloAI(GameServer.MOVE_TIME_MILLIS, Long.MAX_VALUE, 1, 1 << 12);
+    default:
+      throw new IllegalArgumentException("unknown strategy " + name);
+    }
+  }
+
+  // MOVE row col, answered with OK and the computer's row and col (-1 -1
+  // if it did not move) and the state of the game
+  private String move(String[] words) {
+    if (words.length != 3)
+      throw new IllegalArgumentException("usage: MOVE row col");
+    if (!game.stillRunning())
+      return "ERR game over";
+    int row = Integer.parseInt(words[1]);
+    int col = Integer.parseInt(words[2]);
+    if (row < 0 || row >= game.rows() || col < 0 || col >= game.cols())
+      return "ERR off the board";
+    if (!game.available(row, col))
+      return "ERR taken";
+
+    long start = System.nanoTime();
+    game.choose(row, col);
+    int reply = -1;
+    if (game.stillRunning()) {
+      reply = game.getComputerPlayer().desiredCell(game);
+      game.choose(reply);
+    }
+    stats.moved(System.nanoTime() - start);
+    if (!game.stillRunning() && log != null)
+      record();
+
+    if (reply < 0)
+      return "OK -1 -1 " + state();
+    return "OK " + game.getGeometry().row(reply) + " " + game.getGeometry().col(reply) + " " + state();
+  }
+
+  private void record() {
+    try {
+      log.append(GameRecord.of(game));
+    } catch (IOException e) {
+      // Losing the record is no reason to stop the game
+      System.err.println("GameServer: could not log a game: " + e.getMessage());
+    }
+  }
+
+  private String state() {
+    if (game.didWin('X'))
+      return "X_WON";
+    if (game.didWin('O'))
+      return "O_WON";
+    if (game.tied())
+      return "TIE";
+    return "RUNNING";
+  }
+
+  // BOARD, answered with every square row by row
+  private String board() {
+    StringBuilder result = new StringBuilder("BOARD ");
+    for (char[] row : game.getTicTacToeBoard())
+      result.append(row);
+    return result.toString();
+  }
+}
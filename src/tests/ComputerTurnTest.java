@@ -0,0 +1,159 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.junit.Test;
+
+import controller.ComputerTurn;
+import controller.GameEvent;
+import controller.OurObserver;
+import model.IterativeDeepening;
+import model.MonteCarloAI;
+import model.NegamaxAI;
+import model.StopperAI;
+import model.TicTacToeGame;
+import model.TicTacToeStrategy;
+
+public class ComputerTurnTest {
+
+  // Takes its time, then plays the first open square
+  private static class SlowAI implements TicTacToeStrategy {
+    private final long millis;
+
+    SlowAI(long millis) {
+      this.millis = millis;
+    }
+
+    @Override
+    public int desiredCell(TicTacToeGame theGame) {
+      try {
+        Thread.sleep(millis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      int cell = 0;
+      while (!theGame.available(cell))
+        cell++;
+      return cell;
+    }
+  }
+
+  // ComputerTurn, and the game it plays, belong to the Swing thread
+  private static <T> T onSwingThread(Callable<T> task) throws Exception {
+    FutureTask<T> future = new FutureTask<T>(task);
+    EventQueue.invokeAndWait(future);
+    return future.get();
+  }
+
+  private static int movesAfter(TicTacToeGame game, long millis) throws Exception {
+    long end = System.currentTimeMillis() + millis;
+    int moves;
+    do {
+      Thread.sleep(10);
+      moves = onSwingThread(game::getMoveNumber);
+    } while (moves < 2 && System.currentTimeMillis() < end);
+    return moves;
+  }
+
+  @Test
+  public void testComputerMovesInTheBackground() throws Exception {
+    TicTacToeGame game = new TicTacToeGame();
+    game.setComputerPlayerStrategy(new SlowAI(100));
+    List<GameEvent.Type> events = new ArrayList<GameEvent.Type>();
+    ComputerTurn turn = onSwingThread(() -> {
+      game.addObserver(new OurObserver() {
+        public void update() {
+        }
+
+        public void update(GameEvent event) {
+          events.add(event.getType());
+        }
+      });
+      ComputerTurn result = new ComputerTurn(game);
+      game.choose(1, 1);
+      result.start();
+      return result;
+    });
+    // start() came straight back while the strategy sleeps
+    assertTrue(onSwingThread(turn::isThinking));
+    assertEquals(2, movesAfter(game, 5000));
+    assertFalse(onSwingThread(turn::isThinking));
+    assertEquals('O', game.getTicTacToeBoard()[0][0]);
+    assertEquals(GameEvent.Type.COMPUTER_THINKING, events.get(1));
+  }
+
+  @Test
+  public void testTimeLimitPlaysSomewhereAnyway() throws Exception {
+    TicTacToeGame game = new TicTacToeGame();
+    game.setComputerPlayerStrategy(new SlowAI(10000));
+    onSwingThread(() -> {
+      game.choose(0, 0);
+      new ComputerTurn(game, 50).start();
+      return null;
+    });
+    assertEquals(2, movesAfter(game, 5000));
+  }
+
+  @Test
+  public void testNewGameCancelsTheMove() throws Exception {
+    TicTacToeGame game = new TicTacToeGame();
+    game.setComputerPlayerStrategy(new SlowAI(100));
+    ComputerTurn turn = onSwingThread(() -> {
+      ComputerTurn result = new ComputerTurn(game);
+      game.choose(0, 0);
+      result.start();
+      result.cancel();
+      game.startNewGame();
+      return result;
+    });
+    assertFalse(onSwingThread(turn::isThinking));
+    Thread.sleep(300);
+    assertEquals(0, (int) onSwingThread(game::getMoveNumber));
+
+    // And the next game's turns still work
+    game.setComputerPlayerStrategy(new StopperAI());
+    onSwingThread(() -> {
+      game.choose(1, 1);
+      turn.start();
+      return null;
+    });
+    assertEquals(2, movesAfter(game, 5000));
+  }
+
+  @Test
+  public void testTimeLimitStopsTheSearch() throws Exception {
+    // Each of these would think for minutes if it were not stopped
+    for (TicTacToeStrategy strategy : new TicTacToeStrategy[] { new NegamaxAI(Integer.MAX_VALUE, 16),
+        new IterativeDeepening(600000), new MonteCarloAI(600000, Long.MAX_VALUE, 2) }) {
+      TicTacToeGame game = new TicTacToeGame(7, 7, 5);
+      game.setComputerPlayerStrategy(strategy);
+      ComputerTurn turn = onSwingThread(() -> {
+        ComputerTurn result = new ComputerTurn(game, 100);
+        game.choose(3, 3);
+        result.start();
+        return result;
+      });
+      assertEquals(2, movesAfter(game, 5000));
+
+      // The next move is not stuck behind the one that ran out of time
+      game.setComputerPlayerStrategy(new StopperAI());
+      onSwingThread(() -> {
+        game.choose(0, 0);
+        turn.start();
+        return null;
+      });
+      long end = System.currentTimeMillis() + 5000;
+      while (onSwingThread(game::getMoveNumber) < 4 && System.currentTimeMillis() < end)
+        Thread.sleep(10);
+      assertEquals(4, (int) onSwingThread(game::getMoveNumber));
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import controller.GameEvent;
+import controller.OurObserver;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import model.ComputerPlayer;
+import model.NegamaxAI;
+import model.TicTacToeGame;
+
+public class FlightRecorderTest {
+
+  // The tictactoe events of a recording of action, in order
+  private List<RecordedEvent> record(Runnable action) throws Exception {
+    Path file = Files.createTempFile("tictactoe", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("tictactoe.Move");
+      recording.enable("tictactoe.Search");
+      recording.enable("tictactoe.Notify");
+      recording.start();
+      action.run();
+      recording.stop();
+      recording.dump(file);
+      List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+      for (RecordedEvent event : RecordingFile.readAllEvents(file))
+        if (event.getEventType().getName().startsWith("tictactoe."))
+          events.add(event);
+      events.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+      return events;
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+    List<RecordedEvent> result = new ArrayList<RecordedEvent>();
+    for (RecordedEvent event : events)
+      if (event.getEventType().getName().equals(name))
+        result.add(event);
+    return result;
+  }
+
+  @Test
+  public void testMovesSearchesAndNotifications() throws Exception {
+    ComputerPlayer player = new ComputerPlayer();
+    player.setStrategy(new NegamaxAI());
+    TicTacToeGame game = new TicTacToeGame(4, 4, 3);
+    game.addObserver(new OurObserver() {
+      public void update() {
+      }
+
+      public void update(GameEvent event) {
+      }
+    });
+    List<RecordedEvent> events = record(() -> {
+      game.choose(0, 0);
+      game.choose(player.desiredCell(game));
+    });
+
+    List<RecordedEvent> moves = named(events, "tictactoe.Move");
+    assertEquals(2, moves.size());
+    RecordedEvent first = moves.get(0);
+    assertEquals(4, first.getInt("rows"));
+    assertEquals(4, first.getInt("cols"));
+    assertEquals(3, first.getInt("winLength"));
+    assertEquals(1, first.getInt("moveNumber"));
+    assertEquals(0, first.getInt("cell"));
+    assertEquals('X', first.getChar("player"));
+    assertFalse(first.getBoolean("gameOver"));
+    assertEquals(2, moves.get(1).getInt("moveNumber"));
+    assertEquals('O', moves.get(1).getChar("player"));
+
+    List<RecordedEvent> searches = named(events, "tictactoe.Search");
+    assertEquals(1, searches.size());
+    RecordedEvent search = searches.get(0);
+    assertEquals("NegamaxAI", search.getString("strategy"));
+    assertEquals(2, search.getInt("moveNumber"));
+    assertEquals(game.getLastMove(), search.getInt("cell"));
+    assertTrue(search.getLong("nodesSearched") > 0);
+    assertFalse(search.getDuration().isNegative());
+
+    // Each move is one MOVE_MADE notification, inside its Move event
+    List<RecordedEvent> notified = named(events, "tictactoe.Notify");
+    assertEquals(2, notified.size());
+    for (int i = 0; i < 2; i++) {
+      RecordedEvent notify = notified.get(i);
+      assertEquals("MOVE_MADE", notify.getString("event"));
+      assertEquals(1, notify.getInt("observers"));
+      assertFalse(notify.getBoolean("queued"));
+      assertFalse(notify.getStartTime().isBefore(moves.get(i).getStartTime()));
+      assertFalse(notify.getEndTime().isAfter(moves.get(i).getEndTime()));
+    }
+  }
+
+  @Test
+  public void testLastMove() throws Exception {
+    TicTacToeGame game = new TicTacToeGame();
+    game.choose(0, 0);
+    game.choose(1, 0);
+    game.choose(0, 1);
+    game.choose(1, 1);
+    List<RecordedEvent> events = record(() -> game.choose(0, 2));
+    assertEquals(1, events.size());
+    assertTrue(events.get(0).getBoolean("gameOver"));
+    assertEquals(5, events.get(0).getInt("moveNumber"));
+  }
+}
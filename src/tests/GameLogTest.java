@@ -0,0 +1,153 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import model.TicTacToeGame;
+import persistence.GameLogReader;
+import persistence.GameLogWriter;
+import persistence.GameRecord;
+
+public class GameLogTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  // A random game played to the end
+  private static GameRecord randomGame(SplittableRandom random, int rows, int cols, int k) {
+    TicTacToeGame game = new TicTacToeGame(rows, cols, k);
+    while (game.stillRunning())
+      game.makeMove(game.randomAvailableCell(random));
+    return GameRecord.of(game);
+  }
+
+  private static GameRecord roundTrip(GameRecord game) {
+    ByteBuffer buffer = ByteBuffer.allocate(game.encodedSize());
+    game.encode(buffer);
+    assertEquals(0, buffer.remaining());
+    buffer.flip();
+    return GameRecord.decode(buffer);
+  }
+
+  @Test
+  public void testRecordsRoundTrip() {
+    SplittableRandom random = new SplittableRandom(17);
+    int[][] shapes = { { 3, 3, 3 }, { 4, 4, 3 }, { 5, 5, 4 }, { 15, 15, 5 }, { 20, 20, 5 } };
+    for (int[] shape : shapes)
+      for (int i = 0; i < 50; i++) {
+        GameRecord game = randomGame(random, shape[0], shape[1], shape[2]);
+        assertEquals(game, roundTrip(game));
+      }
+    assertEquals(new GameRecord(3, 3, 3, new int[0]), roundTrip(new GameRecord(3, 3, 3, new int[0])));
+  }
+
+  @Test
+  public void testClassicGameIsSixBytes() {
+    GameRecord game = new GameRecord(3, 3, 3, new int[] { 4, 0, 8, 2, 6, 7, 1, 3, 5 });
+    assertEquals(6, game.encodedSize());
+    TicTacToeGame replayed = game.replay();
+    assertTrue(replayed.tied());
+    assertEquals(game, GameRecord.of(replayed));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMovesMustBeOnTheBoardOnce() {
+    new GameRecord(3, 3, 3, new int[] { 4, 4 });
+  }
+
+  @Test
+  public void testLogAcrossRegionsAndReopen() throws IOException {
+    Path path = folder.newFile("games.log").toPath();
+    SplittableRandom random = new SplittableRandom(3);
+    List<GameRecord> games = new ArrayList<GameRecord>();
+    try (GameLogWriter writer = new GameLogWriter(path, 4096)) {
+      for (int i = 0; i < 3000; i++) {
+        GameRecord game = i % 10 == 0 ? randomGame(random, 7, 7, 4) : randomGame(random, 3, 3, 3);
+        games.add(game);
+        writer.append(game);
+      }
+    }
+    // Carry on where the log left off
+    try (GameLogWriter writer = new GameLogWriter(path)) {
+      assertEquals(3000, writer.getGames());
+      for (int i = 0; i < 100; i++) {
+        GameRecord game = randomGame(random, 3, 3, 3);
+        games.add(game);
+        writer.append(game);
+      }
+    }
+    assertEquals(games, readAll(path));
+  }
+
+  @Test
+  public void testFlushCoversEveryRegion() throws IOException {
+    Path path = folder.newFile("flushed.log").toPath();
+    SplittableRandom random = new SplittableRandom(9);
+    List<GameRecord> games = new ArrayList<GameRecord>();
+    try (GameLogWriter writer = new GameLogWriter(path, 4096)) {
+      // About 6 bytes a game, so several regions' worth
+      for (int i = 0; i < 3000; i++) {
+        games.add(randomGame(random, 3, 3, 3));
+        writer.append(games.get(i));
+      }
+      assertTrue(writer.getEnd() > 3 * 4096);
+      writer.flush();
+      // Everything flushed can be read back while the writer is still open
+      assertEquals(games, readAll(path));
+    }
+    assertEquals(games, readAll(path));
+  }
+
+  @Test
+  public void testTornWriteEndsTheLog() throws IOException {
+    Path path = folder.newFile("torn.log").toPath();
+    SplittableRandom random = new SplittableRandom(5);
+    List<GameRecord> games = new ArrayList<GameRecord>();
+    long lastStart;
+    try (GameLogWriter writer = new GameLogWriter(path, 4096)) {
+      for (int i = 0; i < 10; i++) {
+        games.add(randomGame(random, 3, 3, 3));
+        writer.append(games.get(i));
+      }
+      lastStart = writer.getEnd();
+      writer.append(randomGame(random, 3, 3, 3));
+    }
+    // Damage the last game as a crash in the middle of writing it might
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.seek(lastStart + 2);
+      file.write(file.read() ^ 0xFF);
+    }
+    assertEquals(games, readAll(path));
+
+    // A writer opened after the crash writes over the damaged game
+    try (GameLogWriter writer = new GameLogWriter(path)) {
+      assertEquals(10, writer.getGames());
+      games.add(randomGame(random, 3, 3, 3));
+      writer.append(games.get(10));
+    }
+    assertEquals(games, readAll(path));
+  }
+
+  private static List<GameRecord> readAll(Path path) throws IOException {
+    List<GameRecord> games = new ArrayList<GameRecord>();
+    try (GameLogReader reader = new GameLogReader(path)) {
+      for (GameRecord game; (game = reader.read()) != null;)
+        games.add(game);
+      assertNull(reader.read());
+    }
+    return games;
+  }
+}
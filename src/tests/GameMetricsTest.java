@@ -0,0 +1,142 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.GameEvent;
+import controller.OurObserver;
+import metrics.GameMetrics;
+import metrics.StrategyMetrics;
+import model.ComputerPlayer;
+import model.NegamaxAI;
+import model.RandomAI;
+import model.TicTacToeGame;
+
+public class GameMetricsTest {
+
+  @Before
+  public void setUp() {
+    GameMetrics.reset();
+    GameMetrics.setEnabled(true);
+  }
+
+  @After
+  public void tearDown() {
+    GameMetrics.setEnabled(false);
+    GameMetrics.reset();
+  }
+
+  // Play one game between two computer players to the end
+  private void play(TicTacToeGame game, ComputerPlayer x, ComputerPlayer o) {
+    while (game.stillRunning())
+      game.choose((game.getMoveNumber() % 2 == 0 ? x : o).desiredCell(game));
+  }
+
+  @Test
+  public void testMovesGamesAndStrategies() {
+    ComputerPlayer negamax = new ComputerPlayer();
+    negamax.setStrategy(new NegamaxAI());
+    ComputerPlayer random = new ComputerPlayer();
+    TicTacToeGame game = new TicTacToeGame();
+    long moves = 0;
+    int negamaxMoves = 0;
+    for (int i = 0; i < 4; i++) {
+      game.startNewGame();
+      play(game, negamax, random);
+      moves += game.getMoveNumber();
+      negamaxMoves += (game.getMoveNumber() + 1) / 2;
+      // NegamaxAI never loses
+      assertTrue(game.didWin('X') || game.tied());
+    }
+    GameMetrics.Snapshot snapshot = GameMetrics.snapshot();
+    assertEquals(moves, snapshot.getMoves());
+    assertEquals(4, snapshot.getGames());
+    assertEquals(4, snapshot.getXWins() + snapshot.getTies());
+    assertEquals(0, snapshot.getOWins());
+
+    StrategyMetrics.Snapshot searched = snapshot.getStrategy("NegamaxAI");
+    assertEquals(negamaxMoves, searched.getMoves());
+    assertTrue(searched.getNodesSearched() > 0);
+    assertTrue(searched.getP99Micros() >= searched.getP50Micros());
+    StrategyMetrics.Snapshot guessed = snapshot.getStrategy("RandomAI");
+    assertEquals(moves - negamaxMoves, guessed.getMoves());
+    assertEquals(0, guessed.getNodesSearched());
+
+    // A snapshot stays as it was
+    game.startNewGame();
+    play(game, negamax, random);
+    assertEquals(moves, snapshot.getMoves());
+    assertEquals(5, GameMetrics.getGames());
+  }
+
+  @Test
+  public void testNothingRecordedWhileDisabled() {
+    GameMetrics.setEnabled(false);
+    ComputerPlayer player = new ComputerPlayer();
+    player.setStrategy(new RandomAI());
+    TicTacToeGame game = new TicTacToeGame();
+    game.addObserver(new OurObserver() {
+      public void update() {
+      }
+
+      public void update(GameEvent event) {
+      }
+    });
+    play(game, player, player);
+    GameMetrics.Snapshot snapshot = GameMetrics.snapshot();
+    assertEquals(0, snapshot.getMoves());
+    assertEquals(0, snapshot.getGames());
+    assertEquals(0, snapshot.getNotifications());
+    StrategyMetrics.Snapshot random = snapshot.getStrategy("RandomAI");
+    assertTrue(random == null || random.getMoves() == 0);
+  }
+
+  @Test
+  public void testObserversTimed() {
+    TicTacToeGame game = new TicTacToeGame();
+    game.addObserver(new OurObserver() {
+      public void update() {
+      }
+
+      public void update(GameEvent event) {
+      }
+    });
+    game.choose(1, 1);
+    game.notifyObservers();
+    // One event for the move and one plain update
+    assertEquals(2, GameMetrics.snapshot().getNotifications());
+  }
+
+  @Test
+  public void testPublishedOverJmx() throws Exception {
+    GameMetrics.registerMBeans();
+    GameMetrics.registerMBeans();
+    ComputerPlayer player = new ComputerPlayer();
+    player.setStrategy(new NegamaxAI());
+    TicTacToeGame game = new TicTacToeGame();
+    play(game, player, player);
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    assertEquals((long) game.getMoveNumber(), server.getAttribute(GameMetrics.gamesName(), "Moves"));
+    assertEquals(1L, server.getAttribute(GameMetrics.gamesName(), "Ties"));
+    assertEquals(Boolean.TRUE, server.getAttribute(GameMetrics.gamesName(), "Enabled"));
+    // Registered the first time NegamaxAI chose a move
+    assertEquals("NegamaxAI", server.getAttribute(GameMetrics.strategyName("NegamaxAI"), "Name"));
+    assertEquals((long) game.getMoveNumber(), server.getAttribute(GameMetrics.strategyName("NegamaxAI"), "Moves"));
+
+    server.invoke(GameMetrics.gamesName(), "reset", null, null);
+    assertEquals(0, GameMetrics.getMoves());
+    assertNotNull(GameMetrics.snapshot().getStrategy("NegamaxAI"));
+    assertNull(GameMetrics.snapshot().getStrategy("NoSuchAI"));
+  }
+}
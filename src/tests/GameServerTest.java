@@ -0,0 +1,168 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import metrics.LatencyHistogram;
+import persistence.GameLogReader;
+import persistence.GameLogWriter;
+import server.GameServer;
+
+public class GameServerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  // One connection to the server, talking a line at a time
+  private static class Client implements AutoCloseable {
+    private final Socket socket;
+    private final BufferedReader in;
+    private final PrintWriter out;
+
+    Client(int port) throws IOException {
+      socket = new Socket(InetAddress.getLoopbackAddress(), port);
+      in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+    }
+
+    String send(String line) throws IOException {
+      out.println(line);
+      return in.readLine();
+    }
+
+    @Override
+    public void close() throws IOException {
+      socket.close();
+    }
+  }
+
+  // Take the first open square until the game ends; return the moves made
+  private static int playOneGame(Client client, String strategy) throws IOException {
+    assertEquals("OK 3 3 3", client.send("NEW 3 3 3 " + strategy));
+    int moves = 0;
+    while (true) {
+      String board = client.send("BOARD").substring("BOARD ".length());
+      int cell = board.indexOf('_');
+      String reply = client.send("MOVE " + cell / 3 + " " + cell % 3);
+      assertTrue(reply, reply.startsWith("OK "));
+      moves++;
+      if (!reply.endsWith("RUNNING"))
+        return moves;
+    }
+  }
+
+  @Test
+  public void testOneSessionOverLoopback() throws IOException {
+    try (GameServer server = new GameServer(0).start(); Client client = new Client(server.getPort())) {
+      assertEquals("OK 3 3 3", client.send("NEW"));
+      assertEquals("BOARD _________", client.send("BOARD"));
+      String reply = client.send("MOVE 1 1");
+      assertTrue(reply, reply.matches("OK [0-2] [0-2] RUNNING"));
+      assertEquals("ERR taken", client.send("MOVE 1 1"));
+      assertEquals("ERR off the board", client.send("MOVE 3 0"));
+      assertTrue(client.send("MOVE one 1").startsWith("ERR"));
+      assertTrue(client.send("NEW 3 3 3 nobody").startsWith("ERR"));
+      assertTrue(client.send("JUMP").startsWith("ERR"));
+      assertTrue(client.send("NEW 20000 20000 5").startsWith("ERR"));
+      assertTrue(client.send("NEW 3 100000 3").startsWith("ERR"));
+      assertEquals("OK 4 5 3", client.send("NEW 4 5 3 negamax"));
+      assertEquals("BOARD ____________________", client.send("BOARD"));
+      assertTrue(client.send("STATS").startsWith("STATS sessions=1 total=1 moves=1 "));
+    }
+  }
+
+  @Test
+  public void testSearchesKeepToTheMoveTime() throws IOException {
+    try (GameServer server = new GameServer(0).start(); Client client = new Client(server.getPort())) {
+      for (String strategy : new String[] { "negamax", "montecarlo" }) {
+        assertEquals("OK 15 15 5", client.send("NEW 15 15 5 " + strategy));
+        long start = System.nanoTime();
+        String reply = client.send("MOVE 7 7");
+        long millis = (System.nanoTime() - start) / 1000000;
+        assertTrue(reply, reply.endsWith("RUNNING"));
+        // The time limit, and some room for a slow machine
+        assertTrue(strategy + " took " + millis + "ms", millis < GameServer.MOVE_TIME_MILLIS + 400);
+      }
+    }
+  }
+
+  @Test
+  public void testManySessionsAtOnce() throws Exception {
+    int clients = 32;
+    int gamesEach = 5;
+    Path logPath = folder.newFile("server.log").toPath();
+    try (GameServer server = new GameServer(0).start(); GameLogWriter log = new GameLogWriter(logPath)) {
+      server.setGameLog(log);
+      ExecutorService pool = Executors.newFixedThreadPool(clients);
+      try {
+        List<Future<Integer>> played = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < clients; i++) {
+          final String strategy = i % 2 == 0 ? "random" : "stopper";
+          played.add(pool.submit(() -> {
+            int moves = 0;
+            try (Client client = new Client(server.getPort())) {
+              for (int game = 0; game < gamesEach; game++)
+                moves += playOneGame(client, strategy);
+              client.send("QUIT");
+            }
+            return moves;
+          }));
+        }
+        long moves = 0;
+        for (Future<Integer> done : played)
+          moves += done.get();
+
+        GameServer.Stats stats = server.getStats();
+        assertEquals(moves, stats.getMoves());
+        assertEquals(clients, stats.getTotalSessions());
+        assertTrue(stats.getMovesPerSecond() > 0);
+        assertTrue(stats.getP99Micros() > 0);
+        for (int wait = 0; stats.getActiveSessions() > 0 && wait < 100; wait++)
+          Thread.sleep(20);
+        assertEquals(0, stats.getActiveSessions());
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+    // Every game finished went into the log
+    try (GameLogReader reader = new GameLogReader(logPath)) {
+      while (reader.read() != null)
+        ;
+      assertEquals(clients * gamesEach, reader.getGamesRead());
+    }
+  }
+
+  @Test
+  public void testHistogramPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getPercentile(99));
+    for (long micros = 1; micros <= 1000; micros++)
+      histogram.record(micros * 1000);
+    assertEquals(1000, histogram.getCount());
+    long p99 = histogram.getPercentile(99);
+    assertTrue(p99 >= 990000 && p99 < 990000 * 1.13);
+    long p50 = histogram.getPercentile(50);
+    assertTrue(p50 >= 500000 && p50 < 500000 * 1.13);
+    histogram.reset();
+    histogram.record(7);
+    assertEquals(7, histogram.getPercentile(100));
+  }
+}
@@ -0,0 +1,121 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import model.BoardGeometry;
+import model.LineThreats;
+import model.TicTacToeGame;
+
+public class LineThreatsTest {
+
+  // Count the open lines of game the slow way and compare
+  private void assertCounts(TicTacToeGame game, LineThreats threats) {
+    BoardGeometry geometry = game.getGeometry();
+    int k = geometry.winLength();
+    int[][] open = new int[2][k + 1];
+    int[] nearWins = new int[2];
+    for (int line = 0; line < geometry.lineCount(); line++) {
+      int x = 0;
+      int o = 0;
+      for (int cell : geometry.lineCells(line)) {
+        if (game.isX(cell + 1))
+          x++;
+        else if (game.isO(cell + 1))
+          o++;
+      }
+      if (o == 0)
+        open[0][x]++;
+      if (x == 0)
+        open[1][o]++;
+      if (o == 0 && x == k - 1)
+        nearWins[0]++;
+      if (x == 0 && o == k - 1)
+        nearWins[1]++;
+    }
+    for (int player = 0; player < 2; player++) {
+      for (int n = 0; n <= k; n++)
+        assertEquals(open[player][n], threats.openLines(player, n));
+      assertEquals(nearWins[player], threats.nearWins(player));
+      int cell = threats.winningCell(player);
+      if (nearWins[player] == 0)
+        assertEquals(-1, cell);
+      else {
+        // cell finishes one of the player's lines
+        assertTrue(game.available(cell));
+        boolean completes = false;
+        for (int line : geometry.linesThroughCell(cell)) {
+          int mine = 0;
+          for (int other : geometry.lineCells(line))
+            if (player == 0 ? game.isX(other + 1) : game.isO(other + 1))
+              mine++;
+          completes |= mine == k - 1;
+        }
+        assertTrue(completes);
+      }
+    }
+  }
+
+  @Test
+  public void testCountsFollowMovesAndTakeBacks() {
+    Random random = new Random(22);
+    for (int[] shape : new int[][] { { 3, 3, 3 }, { 5, 5, 4 }, { 7, 6, 5 } }) {
+      TicTacToeGame game = new TicTacToeGame(shape[0], shape[1], shape[2]);
+      LineThreats threats = new LineThreats(game.getGeometry());
+      for (int i = 0; i < 20; i++) {
+        game.startNewGame();
+        threats.clear();
+        while (game.stillRunning()) {
+          int cell = game.randomAvailableCell(random);
+          threats.place(game.getMoveNumber() % 2, cell);
+          game.makeMove(cell);
+          if (game.stillRunning())
+            assertCounts(game, threats);
+        }
+        assertTrue(threats.hasWon(0) == game.didWin('X'));
+        assertTrue(threats.hasWon(1) == game.didWin('O'));
+        // Take everything back
+        while (game.getMoveNumber() > 0) {
+          int cell = game.getLastMove();
+          game.unmakeMove();
+          threats.remove(game.getMoveNumber() % 2, cell);
+          assertCounts(game, threats);
+        }
+        assertEquals(0, threats.evaluate(0));
+      }
+    }
+  }
+
+  @Test
+  public void testSetUpFromGame() {
+    TicTacToeGame game = new TicTacToeGame(7, 7, 5);
+    game.choose(3, 1);
+    game.choose(0, 0);
+    game.choose(3, 2);
+    game.choose(0, 6);
+    game.choose(3, 3);
+    game.choose(6, 0);
+    game.choose(3, 4);
+    LineThreats threats = new LineThreats(game.getGeometry());
+    threats.setUp(game);
+    assertCounts(game, threats);
+    // Four in a row open at both ends
+    assertEquals(2, threats.nearWins(0));
+    assertFalse(threats.hasWon(0));
+    assertTrue(threats.evaluate(0) > 0);
+    assertEquals(-threats.evaluate(0), threats.evaluate(1));
+    int cell = threats.winningCell(0);
+    assertTrue(cell == game.getGeometry().cell(3, 0) || cell == game.getGeometry().cell(3, 5));
+    assertEquals(-1, threats.winningCell(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOtherBoard() {
+    new LineThreats(new TicTacToeGame(5, 5, 4).getGeometry()).setUp(new TicTacToeGame());
+  }
+}
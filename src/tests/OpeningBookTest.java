@@ -0,0 +1,96 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import book.BookBuilder;
+import book.BookStrategy;
+import book.OpeningBook;
+import model.NegamaxAI;
+import model.SolvedTableAI;
+import model.TicTacToeGame;
+
+public class OpeningBookTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private OpeningBook classicBook(int plies) throws IOException {
+    Path path = folder.newFile().toPath();
+    BookBuilder builder = new BookBuilder(3, 3, 3, plies, new SolvedTableAI());
+    builder.build();
+    builder.write(path);
+    return new OpeningBook(path);
+  }
+
+  @Test
+  public void testSymmetryShrinksTheBook() throws IOException {
+    // 1 empty board, 3 first moves and 12 replies up to symmetry
+    try (OpeningBook book = classicBook(3)) {
+      assertEquals(16, book.size());
+    }
+  }
+
+  // Every move the book gives keeps the value of the position, whichever
+  // rotation or reflection of it is asked about
+  @Test
+  public void testBookMovesArePerfectInEveryOrientation() throws IOException {
+    try (OpeningBook book = classicBook(4)) {
+      int[] checked = new int[1];
+      check(book, new TicTacToeGame(), checked);
+      assertTrue(checked[0] > 300);
+    }
+  }
+
+  private void check(OpeningBook book, TicTacToeGame game, int[] checked) {
+    if (game.getMoveNumber() >= 4 || !game.stillRunning())
+      return;
+    int move = book.lookup(game);
+    assertTrue(game.toString(), move >= 0);
+    int value = SolvedTableAI.value(game);
+    game.makeMove(move);
+    int after = game.stillRunning() ? SolvedTableAI.value(game) : SolvedTableAI.LOSS;
+    game.unmakeMove();
+    assertEquals(game.toString(), SolvedTableAI.WIN - value, after);
+    checked[0]++;
+    for (int i = game.maxMovesRemaining() - 1; i >= 0; i--) {
+      game.makeMove(game.availableCell(i));
+      check(book, game, checked);
+      game.unmakeMove();
+    }
+  }
+
+  @Test
+  public void testStrategyFallsBackOutsideTheBook() throws IOException {
+    Path path = folder.newFile().toPath();
+    BookBuilder builder = new BookBuilder(5, 5, 4, 2, new NegamaxAI(3, 16));
+    builder.build();
+    builder.write(path);
+    try (OpeningBook book = new OpeningBook(path)) {
+      BookStrategy strategy = new BookStrategy(book, new NegamaxAI(3, 16));
+      TicTacToeGame game = new TicTacToeGame(5, 5, 4);
+      while (game.stillRunning()) {
+        boolean inBook = game.getMoveNumber() < 2;
+        game.choose(strategy.desiredCell(game));
+        // Only the fallback's searches count
+        assertEquals(inBook, strategy.getNodesSearched() == 0);
+      }
+      assertEquals(2, strategy.getHits());
+      assertTrue(strategy.getMisses() > 0);
+      // Other shapes are never in the book
+      assertEquals(-1, book.lookup(new TicTacToeGame()));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotABook() throws IOException {
+    new OpeningBook(folder.newFile().toPath());
+  }
+}
@@ -0,0 +1,159 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import controller.GameEvent;
+import controller.OurObservable;
+import controller.OurObserver;
+
+public class OurObservableTest {
+
+  // Writes down every notification it gets
+  private static class Recorder implements OurObserver {
+    final List<String> seen = new ArrayList<String>();
+
+    public void update() {
+      seen.add("update");
+    }
+
+    public void update(GameEvent event) {
+      seen.add(event.toString());
+    }
+  }
+
+  @Test
+  public void testSynchronousByDefault() {
+    OurObservable observable = new OurObservable();
+    Recorder recorder = new Recorder();
+    observable.addObserver(recorder);
+    observable.notifyObservers(GameEvent.moveMade(4, 1, 1, 'X'));
+    observable.notifyObservers();
+    assertEquals(Arrays.asList("MOVE_MADE X at 1,1", "update"), recorder.seen);
+    assertEquals(0, observable.getQueueDepth());
+    assertNull(observable.getDispatchLatency());
+  }
+
+  @Test
+  public void testQueuedDeliveryCarriesOnPastAnException() {
+    OurObservable observable = new OurObservable();
+    observable.addObserver(new OurObserver() {
+      public void update() {
+        throw new IllegalStateException("broken view");
+      }
+    });
+    Recorder recorder = new Recorder();
+    observable.addObserver(recorder);
+    Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+    observable.setDispatchExecutor(tasks::add);
+
+    List<Throwable> reported = new ArrayList<Throwable>();
+    Thread thread = Thread.currentThread();
+    Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+    thread.setUncaughtExceptionHandler((t, e) -> reported.add(e));
+    try {
+      observable.notifyObservers(GameEvent.moveMade(0, 0, 0, 'X'));
+      observable.notifyObservers(GameEvent.moveMade(4, 1, 1, 'O'));
+      tasks.remove().run();
+    } finally {
+      thread.setUncaughtExceptionHandler(handler);
+    }
+    // Both events reached the observer after the broken one
+    assertEquals(Arrays.asList("MOVE_MADE X at 0,0", "MOVE_MADE O at 1,1"), recorder.seen);
+    assertEquals(2, reported.size());
+    assertEquals("broken view", reported.get(0).getMessage());
+    assertTrue(tasks.isEmpty());
+    assertEquals(0, observable.getQueueDepth());
+  }
+
+  @Test
+  public void testBurstsCollapseAtTheLastRedraw() {
+    OurObservable observable = new OurObservable();
+    Recorder recorder = new Recorder();
+    observable.addObserver(recorder);
+    Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+    observable.setDispatchExecutor(tasks::add);
+
+    observable.notifyObservers(GameEvent.moveMade(0, 0, 0, 'X'));
+    observable.notifyObservers(GameEvent.moveMade(4, 1, 1, 'O'));
+    observable.notifyObservers(GameEvent.GAME_RESET);
+    observable.notifyObservers(GameEvent.moveMade(8, 2, 2, 'X'));
+    assertTrue(recorder.seen.isEmpty());
+    assertEquals(4, observable.getQueueDepth());
+    // One drain is waiting however many notifications are
+    assertEquals(1, tasks.size());
+
+    tasks.remove().run();
+    assertEquals(Arrays.asList("GAME_RESET", "MOVE_MADE X at 2,2"), recorder.seen);
+    assertEquals(0, observable.getQueueDepth());
+    assertEquals(4, observable.getMaxQueueDepth());
+    assertEquals(2, observable.getCoalesced());
+    assertEquals(2, observable.getDispatchLatency().getCount());
+
+    // Plain update() calls collapse too
+    recorder.seen.clear();
+    observable.notifyObservers();
+    observable.notifyObservers();
+    tasks.remove().run();
+    assertEquals(Arrays.asList("update"), recorder.seen);
+  }
+
+  @Test
+  public void testSlowObserverDoesNotBlockTheCaller() throws InterruptedException {
+    OurObservable observable = new OurObservable();
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch delivered = new CountDownLatch(10);
+    observable.addObserver(new OurObserver() {
+      public void update() {
+      }
+
+      public void update(GameEvent event) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        delivered.countDown();
+      }
+    });
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      observable.setDispatchExecutor(executor);
+      for (int cell = 0; cell < 10; cell++)
+        observable.notifyObservers(GameEvent.moveMade(cell, 0, cell, 'X'));
+      // Every notification returned while the observer was stuck
+      release.countDown();
+      assertTrue(delivered.await(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testObserversCanLeaveWhileBeingNotified() {
+    OurObservable observable = new OurObservable();
+    Recorder stays = new Recorder();
+    observable.addObserver(new OurObserver() {
+      public void update() {
+        observable.removeObserver(this);
+      }
+    });
+    observable.addObserver(stays);
+    observable.notifyObservers();
+    observable.notifyObservers();
+    assertEquals(2, stays.seen.size());
+  }
+}
@@ -0,0 +1,103 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import model.RandomAI;
+import model.SolvedTableAI;
+import model.Tablebase;
+import model.TablebaseAI;
+import model.TablebaseSolver;
+import model.TicTacToeGame;
+
+public class TablebaseTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Tablebase write(TablebaseSolver solver) throws IOException {
+    Path path = folder.newFile().toPath();
+    solver.write(path);
+    return new Tablebase(path);
+  }
+
+  @Test
+  public void testClassicBoardAgreesWithSolvedTable() throws IOException {
+    TablebaseSolver solver = new TablebaseSolver(3, 3, 3).solve();
+    assertEquals(5478, solver.getReachableCount());
+    int[] expected = { Tablebase.LOSS, Tablebase.DRAW, Tablebase.WIN };
+    Random random = new Random(19);
+    try (Tablebase table = write(solver)) {
+      for (int i = 0; i < 200; i++) {
+        TicTacToeGame game = new TicTacToeGame();
+        while (game.stillRunning()) {
+          assertEquals(expected[SolvedTableAI.value(game)], table.value(game));
+          assertEquals(solver.value(game), table.value(game));
+          game.makeMove(game.randomAvailableCell(random));
+        }
+        assertEquals(Tablebase.LOSS == table.value(game), !game.tied());
+      }
+    }
+  }
+
+  @Test
+  public void testDistanceToTheEnd() {
+    TablebaseSolver solver = new TablebaseSolver(4, 4, 3).solve();
+    TicTacToeGame game = new TicTacToeGame(4, 4, 3);
+    // X makes three in a row on its third move whatever O does
+    assertEquals(Tablebase.WIN, solver.value(game));
+    assertEquals(5, solver.distance(game));
+    game.makeMove(0);
+    game.makeMove(15);
+    game.makeMove(1);
+    // O blocks, X makes two threats, O blocks one and X takes the other
+    assertEquals(Tablebase.LOSS, solver.value(game));
+    assertEquals(4, solver.distance(game));
+  }
+
+  @Test
+  public void testPerfectPlayOnFourByFour() throws IOException {
+    try (Tablebase table = write(new TablebaseSolver(4, 4, 4).solve())) {
+      TablebaseAI perfect = new TablebaseAI(table);
+      RandomAI random = new RandomAI();
+      TicTacToeGame game = new TicTacToeGame(4, 4, 4);
+      assertEquals(Tablebase.DRAW, table.value(game));
+      for (int i = 0; i < 50; i++) {
+        game.startNewGame();
+        boolean perfectIsX = i % 2 == 0;
+        while (game.stillRunning()) {
+          boolean perfectMoves = (game.getMoveNumber() % 2 == 0) == perfectIsX;
+          int before = table.value(game);
+          game.makeMove((perfectMoves ? perfect : random).desiredCell(game));
+          // Perfect play never gives anything away
+          if (perfectMoves && game.stillRunning())
+            assertTrue(4 - table.value(game) >= before);
+        }
+        assertFalse(game.didWin(perfectIsX ? 'O' : 'X'));
+      }
+    }
+  }
+
+  @Test
+  public void testOtherBoardsFallBack() throws IOException {
+    try (Tablebase table = write(new TablebaseSolver(3, 3, 3).solve())) {
+      TicTacToeGame big = new TicTacToeGame(5, 5, 4);
+      assertEquals(Tablebase.UNKNOWN, table.value(big));
+      assertTrue(big.available(new TablebaseAI(table).desiredCell(big)));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooBigToSolve() {
+    new TablebaseSolver(5, 5, 4);
+  }
+}
@@ -3,12 +3,24 @@ package tests;
 import static org.junit.Assert.*;
 
 import java.awt.Point;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
 
+import model.BoardGeometry;
 import model.ComputerPlayer;
 import model.RandomAI;
+import model.SolvedTableAI;
 import model.StopperAI;
+import model.TicTacToeStrategy;
+import model.TranspositionTable;
 import model.TicTacToeGame;
 import model.IGotNowhereToGoException;
+import model.IterativeDeepening;
+import model.MonteCarloAI;
+import model.MoveOrdering;
+import model.NegamaxAI;
+import tournament.Tournament;
 
 import org.junit.Test;
 
@@ -56,43 +68,299 @@ public class TestStrategies {
 
   @Test
   public void run1000TicTacToeGames() {
+    // Each strategy goes first in half of the games
+    Tournament tournament = new Tournament(seed -> new StopperAI(seed), seed -> new RandomAI(seed));
+    Tournament.Result result = tournament.play(1000, 8, 2, 1000);
+
+    System.out.println("StopperAI strategy shoud have more wins than");
+    System.out.println("than RandomAI strategy when they both go first");
+    System.out.println("the same number of times. And ties do happen");
+    System.out.println("===========================================");
+    System.out.println("Stopper wins: " + result.getFirstWins());
+    System.out.println("Random wins: " + result.getSecondWins());
+    System.out.println("Ties: " + result.getTies());
+    assertEquals(1000, result.getGames());
+    assertTrue(result.getFirstWins() > result.getSecondWins());
+
+    // The same seeds give the same games, however the shards are scheduled
+    Tournament.Result again = tournament.play(1000, 8, 4, 1000);
+    assertEquals(result.getFirstWins(), again.getFirstWins());
+    assertEquals(result.getSecondWins(), again.getSecondWins());
+    assertEquals(result.getTies(), again.getTies());
+  }
+
+  @Test
+  public void testEveryPlayerGetsItsOwnSeed() {
+    Set<Long> seeds = ConcurrentHashMap.newKeySet();
+    LongFunction<TicTacToeStrategy> random = seed -> {
+      seeds.add(seed);
+      return new RandomAI(seed);
+    };
+    new Tournament(random, random).play(80, 8, 2, 1000);
+    assertEquals(16, seeds.size());
+  }
+
+  @Test
+  public void testStrategiesPlayOnLargerBoards() {
     ComputerPlayer randomBot = new ComputerPlayer();
     randomBot.setStrategy(new RandomAI());
     ComputerPlayer stopperBot = new ComputerPlayer();
     stopperBot.setStrategy(new StopperAI());
 
-    int randomPlayerWins = 0;
-    int stopperPlayerWins = 0;
-    int ties = 0;
-
-    // 
-    for (int game = 1; game <= 500; game++) {
-      char winner = playOneGame(randomBot, stopperBot);
-      if (winner == 'X')
-        randomPlayerWins++;
-      if (winner == 'O')
-        stopperPlayerWins++;
-      if (winner == 'T')
-        ties++;
+    int[][] shapes = { { 4, 4, 4 }, { 5, 5, 4 }, { 7, 7, 5 }, { 15, 15, 5 } };
+    for (int[] shape : shapes) {
+      for (int game = 0; game < 20; game++) {
+        TicTacToeGame theGame = new TicTacToeGame(shape[0], shape[1], shape[2]);
+        ComputerPlayer next = game % 2 == 0 ? randomBot : stopperBot;
+        while (theGame.stillRunning()) {
+          Point move = next.desiredMove(theGame);
+          assertTrue(theGame.choose(move.x, move.y));
+          next = next == randomBot ? stopperBot : randomBot;
+        }
+      }
     }
+  }
+
+  @Test
+  public void testStopperBlocksOnFourByFour() {
+    TicTacToeGame theGame = new TicTacToeGame(4, 4, 4);
+    ComputerPlayer playerWithStopperStrategy = new ComputerPlayer();
+    playerWithStopperStrategy.setStrategy(new StopperAI());
+    // X takes three of column 2
+    theGame.choose(0, 2);
+    theGame.choose(0, 0);
+    theGame.choose(1, 2);
+    theGame.choose(3, 3);
+    theGame.choose(3, 2);
+
+    Point computerMove = playerWithStopperStrategy.desiredMove(theGame);
+    assertEquals(2, computerMove.x);
+    assertEquals(2, computerMove.y);
+  }
+
+  @Test
+  public void testStopperBlocksPastSixtyFiveThousandCells() {
+    // 90000 cells, so the block is at a cell past 65535
+    TicTacToeGame theGame = new TicTacToeGame(300, 300, 3);
+    ComputerPlayer playerWithStopperStrategy = new ComputerPlayer();
+    playerWithStopperStrategy.setStrategy(new StopperAI());
+    theGame.choose(299, 297);
+    theGame.choose(0, 0);
+    theGame.choose(299, 299);
 
-    for (int game = 1; game <= 500; game++) {
-      char winner = playOneGame(stopperBot, randomBot);
-      if (winner == 'X')
-        stopperPlayerWins++;
-      if (winner == 'O')
-        randomPlayerWins++;
-      if (winner == 'T')
-        ties++;
+    Point computerMove = playerWithStopperStrategy.desiredMove(theGame);
+    assertEquals(299, computerMove.x);
+    assertEquals(298, computerMove.y);
+  }
+
+  @Test
+  public void testNegamaxNeverLoses() {
+    ComputerPlayer randomBot = new ComputerPlayer();
+    randomBot.setStrategy(new RandomAI());
+    ComputerPlayer stopperBot = new ComputerPlayer();
+    stopperBot.setStrategy(new StopperAI());
+    ComputerPlayer negamaxBot = new ComputerPlayer();
+    negamaxBot.setStrategy(new NegamaxAI());
+
+    for (int game = 1; game <= 100; game++) {
+      assertTrue(playOneGame(negamaxBot, randomBot) != 'O');
+      assertTrue(playOneGame(randomBot, negamaxBot) != 'X');
+      assertTrue(playOneGame(negamaxBot, stopperBot) != 'O');
+      assertTrue(playOneGame(stopperBot, negamaxBot) != 'X');
     }
+    // Perfect play from both sides is always a tie
+    assertEquals('T', playOneGame(negamaxBot, negamaxBot));
+  }
 
-    System.out.println("StopperAI strategy shoud have more wins than");
-    System.out.println("than RandomAI strategy when they both go first");
-    System.out.println("the same number of times. And ties do happen");
-    System.out.println("===========================================");
-    System.out.println("Stopper wins: " + stopperPlayerWins);
-    System.out.println("Random wins: " + randomPlayerWins);
-    System.out.println("Ties: " + ties);
+  @Test
+  public void testNegamaxTakesWinAndBlocks() {
+    NegamaxAI negamax = new NegamaxAI();
+    TicTacToeGame theGame = new TicTacToeGame();
+    // X
+    theGame.choose(0, 0);
+    // O
+    theGame.choose(2, 0);
+    // X
+    theGame.choose(0, 1);
+    Point block = negamax.desiredMove(theGame);
+    assertEquals(0, block.x);
+    assertEquals(2, block.y);
+    assertTrue(negamax.getNodesSearched() > 0);
+
+    // O can win along the bottom row before X wins on the diagonal
+    theGame = new TicTacToeGame();
+    theGame.choose(0, 0);
+    theGame.choose(2, 0);
+    theGame.choose(0, 1);
+    theGame.choose(2, 1);
+    theGame.choose(1, 1);
+    Point win = negamax.desiredMove(theGame);
+    assertEquals(2, win.x);
+    assertEquals(2, win.y);
+  }
+
+  @Test
+  public void testNegamaxOnLargerBoard() {
+    NegamaxAI negamax = new NegamaxAI(3, 16);
+    TicTacToeGame theGame = new TicTacToeGame(7, 7, 5);
+    // X has four across row 3 and O must block the open end
+    theGame.choose(3, 1);
+    theGame.choose(3, 0);
+    theGame.choose(3, 2);
+    theGame.choose(0, 6);
+    theGame.choose(3, 3);
+    theGame.choose(6, 0);
+    theGame.choose(3, 4);
+    Point block = negamax.desiredMove(theGame);
+    assertEquals(3, block.x);
+    assertEquals(5, block.y);
+  }
+
+  @Test
+  public void testIterativeDeepeningFinishesClassicBoard() {
+    IterativeDeepening deepening = new IterativeDeepening(10000);
+    ComputerPlayer deepeningBot = new ComputerPlayer();
+    deepeningBot.setStrategy(deepening);
+    ComputerPlayer randomBot = new ComputerPlayer();
+    randomBot.setStrategy(new RandomAI());
+    for (int game = 1; game <= 20; game++) {
+      assertTrue(playOneGame(deepeningBot, randomBot) != 'O');
+      assertTrue(playOneGame(randomBot, deepeningBot) != 'X');
+    }
+    // Plenty of time to see to the end of the game
+    deepening.desiredCell(new TicTacToeGame());
+    assertEquals(9, deepening.getDepthReached());
+    assertTrue(deepening.getNodesPerSecond() > 0);
+  }
+
+  @Test
+  public void testIterativeDeepeningKeepsToTimeLimit() {
+    IterativeDeepening deepening = new IterativeDeepening(100);
+    TicTacToeGame theGame = new TicTacToeGame(15, 15, 5);
+    theGame.choose(7, 7);
+    theGame.choose(7, 8);
+    theGame.choose(6, 6);
+    int move = deepening.desiredCell(theGame);
+    assertTrue(theGame.available(move));
+    assertTrue(deepening.getDepthReached() >= 1);
+    assertTrue(deepening.getDepthReached() < theGame.maxMovesRemaining());
+    // Generous slack for a slow machine, but nowhere near a full search
+    assertTrue(deepening.getElapsedNanos() < 2000000000L);
+
+    // With no time at all the one move search still finds the block
+    deepening = new IterativeDeepening(new NegamaxAI(), 0, 9);
+    theGame = new TicTacToeGame();
+    theGame.choose(0, 0);
+    theGame.choose(2, 0);
+    theGame.choose(0, 1);
+    assertEquals(2, deepening.desiredCell(theGame));
+    assertEquals(1, deepening.getDepthReached());
+  }
+
+  @Test
+  public void testSolvedTableNeverLoses() {
+    ComputerPlayer randomBot = new ComputerPlayer();
+    randomBot.setStrategy(new RandomAI());
+    ComputerPlayer tableBot = new ComputerPlayer();
+    tableBot.setStrategy(new SolvedTableAI());
+    ComputerPlayer negamaxBot = new ComputerPlayer();
+    negamaxBot.setStrategy(new NegamaxAI());
+
+    assertEquals(SolvedTableAI.TIE, SolvedTableAI.value(new TicTacToeGame()));
+    for (int game = 1; game <= 100; game++) {
+      assertTrue(playOneGame(tableBot, randomBot) != 'O');
+      assertTrue(playOneGame(randomBot, tableBot) != 'X');
+    }
+    assertEquals('T', playOneGame(tableBot, negamaxBot));
+    assertEquals('T', playOneGame(negamaxBot, tableBot));
+  }
+
+  @Test
+  public void testTranspositionTableKeepsBigMoves() {
+    TranspositionTable table = new TranspositionTable(4);
+    // A move on a 100x100 board, past what 13 bits could hold
+    table.store(12345, -7, 40, TranspositionTable.LOWER_BOUND, 9999);
+    int slot = table.probe(12345);
+    assertEquals(9999, table.bestMove(slot));
+    assertEquals(-7, table.score(slot));
+    assertEquals(40, table.depth(slot));
+    assertEquals(TranspositionTable.LOWER_BOUND, table.flag(slot));
+    table.store(12345, 0, 1, TranspositionTable.EXACT, -1);
+    assertEquals(-1, table.bestMove(table.probe(12345)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSolvedTableValueOnlyForClassic() {
+    SolvedTableAI.value(new TicTacToeGame(4, 4, 3));
+  }
+
+  @Test
+  public void testMonteCarloBlocksAndCountsPlayouts() {
+    MonteCarloAI monteCarlo = new MonteCarloAI(Long.MAX_VALUE, 20000, 2);
+    monteCarlo.setSeed(42);
+    TicTacToeGame theGame = new TicTacToeGame();
+    // X
+    theGame.choose(0, 0);
+    // O
+    theGame.choose(2, 0);
+    // X
+    theGame.choose(0, 1);
+
+    Point computerMove = monteCarlo.desiredMove(theGame);
+    assertEquals(0, computerMove.x);
+    assertEquals(2, computerMove.y);
+    assertEquals(20000, monteCarlo.getPlayouts());
+    assertTrue(monteCarlo.getPlayoutsPerSecond() > 0);
+
+    // Any board size, with a time limit instead
+    monteCarlo = new MonteCarloAI(50, Long.MAX_VALUE, 2);
+    theGame = new TicTacToeGame(15, 15, 5);
+    theGame.choose(7, 7);
+    computerMove = monteCarlo.desiredMove(theGame);
+    assertTrue(theGame.available(computerMove.x, computerMove.y));
+    assertTrue(monteCarlo.getPlayouts() > 0);
+  }
+
+  @Test
+  public void testMonteCarloStopsWhenInterrupted() throws InterruptedException {
+    final MonteCarloAI monteCarlo = new MonteCarloAI(60000, Long.MAX_VALUE, 2);
+    final TicTacToeGame theGame = new TicTacToeGame(7, 7, 5);
+    theGame.choose(3, 3);
+    final int[] move = { -1 };
+    Thread searching = new Thread(() -> move[0] = monteCarlo.desiredCell(theGame));
+    long start = System.nanoTime();
+    searching.start();
+    Thread.sleep(100);
+    searching.interrupt();
+    searching.join(10000);
+    assertFalse(searching.isAlive());
+    assertTrue(System.nanoTime() - start < 10_000_000_000L);
+    assertTrue(theGame.available(move[0]));
+
+    // The stopped searches have left the shared pool
+    MonteCarloAI limited = new MonteCarloAI(Long.MAX_VALUE, 4000, 2);
+    assertTrue(theGame.available(limited.desiredCell(theGame)));
+    assertEquals(4000, limited.getPlayouts());
+  }
+
+  @Test
+  public void testHistoryOrderingOnBigBoards() {
+    // 324 squares are on the most lines, more than fit in a byte of rank
+    BoardGeometry geometry = new TicTacToeGame(20, 20, 2).getGeometry();
+    int[] order = MoveOrdering.staticOrder(geometry);
+    int best = order[0];
+    int last = best;
+    for (int cell : order)
+      if (geometry.linesThroughCell(cell).length == geometry.linesThroughCell(best).length)
+        last = cell;
+    MoveOrdering ordering = new MoveOrdering(geometry, MoveOrdering.STATIC | MoveOrdering.HISTORY);
+    int[] moves = { best, last };
+    ordering.order(1, moves, 2, -1);
+    assertArrayEquals(new int[] { best, last }, moves);
+    // One cutoff puts last ahead of every square on as many lines
+    ordering.cutoff(1, new int[] { last }, 0, 1);
+    ordering.order(1, moves, 2, -1);
+    assertArrayEquals(new int[] { last, best }, moves);
   }
 
   private char playOneGame(ComputerPlayer first, ComputerPlayer second) {
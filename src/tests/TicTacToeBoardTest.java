@@ -1,11 +1,22 @@
 package tests;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
 import org.junit.Test;
 
+import controller.GameEvent;
+import controller.OurObserver;
+import model.BoardSymmetry;
 import model.RandomAI;
 import model.StopperAI;
 import model.TicTacToeGame;
@@ -274,6 +285,301 @@ public class TicTacToeBoardTest {
     assertFalse(b.tied());
   }
 
+  @Test
+  public void testWinOnLastSquareIsNotATie() {
+    TicTacToeGame b = new TicTacToeGame();
+    assertTrue(b.choose(0, 0));
+    assertTrue(b.choose(0, 1));
+    assertTrue(b.choose(0, 2));
+    assertTrue(b.choose(1, 0));
+    assertTrue(b.choose(2, 1));
+    assertTrue(b.choose(1, 2));
+    assertTrue(b.choose(1, 1));
+    assertTrue(b.choose(2, 0));
+    assertTrue(b.stillRunning());
+    assertTrue(b.choose(2, 2));
+
+    // System.out.println(b);
+    // XOX
+    // OXO
+    // OXX
+    assertEquals(0, b.maxMovesRemaining());
+    assertTrue(b.didWin('X'));
+    assertFalse(b.didWin('O'));
+    assertFalse(b.tied());
+    assertFalse(b.stillRunning());
+  }
+
+  @Test
+  public void testFourInARowOnFiveByFive() {
+    TicTacToeGame b = new TicTacToeGame(5, 5, 4);
+    assertEquals(5, b.rows());
+    assertEquals(5, b.cols());
+    assertEquals(25, b.maxMovesRemaining());
+    // X runs down the anti-diagonal from (0,4), O along row 4
+    assertTrue(b.choose(0, 4));
+    assertTrue(b.choose(4, 0));
+    assertTrue(b.choose(1, 3));
+    assertTrue(b.choose(4, 1));
+    assertTrue(b.choose(2, 2));
+    assertTrue(b.choose(4, 2));
+    assertFalse(b.didWin('X'));
+    assertTrue(b.choose(3, 1));
+    assertTrue(b.didWin('X'));
+    assertFalse(b.didWin('O'));
+    assertFalse(b.stillRunning());
+  }
+
+  @Test
+  public void testFiveInARowOnFifteenByFifteen() {
+    TicTacToeGame b = new TicTacToeGame(15, 15, 5);
+    // X fills in the middle of a row last, O plays far away
+    int[] xCols = { 5, 6, 8, 9, 7 };
+    for (int i = 0; i < xCols.length; i++) {
+      assertFalse(b.didWin('X'));
+      assertTrue(b.choose(10, xCols[i]));
+      if (i < xCols.length - 1)
+        assertTrue(b.choose(0, i));
+    }
+    assertTrue(b.didWin('X'));
+    assertFalse(b.didWin('O'));
+    assertTrue(b.isX(10 * 15 + 8));
+    assertTrue(b.isO(1));
+  }
+
+  @Test
+  public void testRectangularBoard() {
+    TicTacToeGame b = new TicTacToeGame(3, 7, 3);
+    assertEquals(3, b.getTicTacToeBoard().length);
+    assertEquals(7, b.getTicTacToeBoard()[0].length);
+    assertTrue(b.choose(2, 4));
+    assertTrue(b.choose(0, 0));
+    assertTrue(b.choose(1, 5));
+    assertTrue(b.choose(0, 1));
+    assertTrue(b.choose(0, 6));
+    assertTrue(b.didWin('X'));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWinLengthMustFit() {
+    new TicTacToeGame(3, 3, 4);
+  }
+
+  @Test
+  public void testSymmetricPositionsShareACanonicalForm() {
+    int[][] shapes = { { 3, 3, 3 }, { 4, 4, 4 }, { 3, 5, 3 } };
+    for (int[] shape : shapes) {
+      TicTacToeGame original = new TicTacToeGame(shape[0], shape[1], shape[2]);
+      // X in a corner, O next to it, X further away
+      original.choose(0, 0);
+      original.choose(0, 1);
+      original.choose(1, 2);
+      BoardSymmetry symmetry = BoardSymmetry.of(original.getGeometry());
+      assertEquals(shape[0] == shape[1] ? 8 : 4, symmetry.size());
+
+      long[] canonicalX = null;
+      long[] canonicalO = null;
+      for (int t = 0; t < symmetry.size(); t++) {
+        // Play the same moves through transform t
+        TicTacToeGame image = new TicTacToeGame(shape[0], shape[1], shape[2]);
+        long[] hashes = symmetry.newHashes();
+        int[] moves = { 0, 1, shape[1] + 2 };
+        for (int i = 0; i < moves.length; i++) {
+          int cell = symmetry.map(t, moves[i]);
+          assertEquals(moves[i], symmetry.unmap(t, cell));
+          image.choose(cell / shape[1], cell % shape[1]);
+          symmetry.place(hashes, i % 2, cell);
+        }
+
+        int c = symmetry.canonicalTransform(image);
+        long[] x = symmetry.transform(c, boardBits(image, 'X', shape[1]));
+        long[] o = symmetry.transform(c, boardBits(image, 'O', shape[1]));
+        if (canonicalX == null) {
+          canonicalX = x;
+          canonicalO = o;
+        }
+        assertArrayEquals(canonicalX, x);
+        assertArrayEquals(canonicalO, o);
+
+        // The smallest transformed hash is the same for every image
+        if (t > 0) {
+          long[] first = symmetry.newHashes();
+          for (int i = 0; i < moves.length; i++)
+            symmetry.place(first, i % 2, moves[i]);
+          assertEquals(first[symmetry.canonicalTransform(first)], hashes[symmetry.canonicalTransform(hashes)]);
+        }
+      }
+    }
+  }
+
+  private long[] boardBits(TicTacToeGame game, char player, int cols) {
+    char[][] board = game.getTicTacToeBoard();
+    long[] bits = new long[1];
+    for (int r = 0; r < board.length; r++)
+      for (int c = 0; c < cols; c++)
+        if (board[r][c] == player)
+          bits[0] |= 1L << (r * cols + c);
+    return bits;
+  }
+
+  @Test
+  public void testChooseByCell() {
+    TicTacToeGame b = new TicTacToeGame(4, 5, 4);
+    char[][] board = b.getTicTacToeBoard();
+    // cell 7 is row 1, column 2
+    assertTrue(b.choose(7));
+    assertEquals('X', board[1][2]);
+    assertFalse(b.available(7));
+    assertFalse(b.available(1, 2));
+    assertFalse(b.choose(1, 2));
+    assertTrue(b.choose(1, 3));
+    assertEquals('O', board[1][3]);
+    assertFalse(b.choose(8));
+  }
+
+  @Test
+  public void testAvailableCellsShrinkAsTheBoardFills() {
+    TicTacToeGame b = new TicTacToeGame();
+    SplittableRandom random = new SplittableRandom(7);
+    for (int moves = 0; moves < 9; moves++) {
+      boolean[] seen = new boolean[9];
+      for (int i = 0; i < b.maxMovesRemaining(); i++) {
+        int cell = b.availableCell(i);
+        assertTrue(b.available(cell));
+        assertFalse(seen[cell]);
+        seen[cell] = true;
+      }
+      assertTrue(b.choose(b.randomAvailableCell(random)));
+      if (!b.stillRunning())
+        break;
+    }
+  }
+
+  @Test
+  public void testUnmakeMovePutsEverythingBack() {
+    TicTacToeGame b = new TicTacToeGame(4, 4, 3);
+    int[] updates = new int[1];
+    b.addObserver(() -> updates[0]++);
+    SplittableRandom random = new SplittableRandom(11);
+    b.choose(5);
+    String before = b.toString();
+    int[] open = new int[b.maxMovesRemaining()];
+    for (int i = 0; i < open.length; i++)
+      open[i] = b.availableCell(i);
+    char current = b.getCurrentPlayerChar();
+    updates[0] = 0;
+
+    int made = 0;
+    while (b.stillRunning()) {
+      assertTrue(b.makeMove(b.randomAvailableCell(random)));
+      made++;
+    }
+    assertEquals(0, updates[0]);
+    for (int i = 0; i < made; i++)
+      b.unmakeMove();
+
+    assertEquals(before, b.toString());
+    assertEquals(5, b.getLastMove());
+    assertEquals(1, b.getMoveNumber());
+    assertEquals(current, b.getCurrentPlayerChar());
+    assertTrue(b.stillRunning());
+    assertFalse(b.didWin('X'));
+    assertFalse(b.didWin('O'));
+    for (int i = 0; i < open.length; i++)
+      assertEquals(open[i], b.availableCell(i));
+  }
+
+  @Test
+  public void testCopyIsIndependent() {
+    TicTacToeGame b = new TicTacToeGame();
+    b.choose(1, 1);
+    TicTacToeGame copy = b.copy();
+    copy.makeMove(0);
+    assertTrue(b.available(0));
+    assertFalse(copy.available(0));
+    assertEquals('O', copy.getTicTacToeBoard()[0][0]);
+    assertEquals('_', b.getTicTacToeBoard()[0][0]);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testNothingToUnmake() {
+    new TicTacToeGame().unmakeMove();
+  }
+
+  @Test
+  public void testZobristKeyFollowsMovesAndTakeBacks() {
+    TicTacToeGame b = new TicTacToeGame();
+    assertEquals(0, b.getZobristKey());
+    b.choose(0, 0);
+    long afterOne = b.getZobristKey();
+    b.makeMove(4);
+    b.unmakeMove();
+    assertEquals(afterOne, b.getZobristKey());
+
+    // The same position reached in a different order hashes the same
+    TicTacToeGame other = new TicTacToeGame();
+    other.choose(2, 2);
+    other.choose(1, 1);
+    other.choose(0, 0);
+    b.choose(1, 1);
+    b.choose(2, 2);
+    assertEquals(b.getZobristKey(), other.getZobristKey());
+    b.startNewGame();
+    assertEquals(0, b.getZobristKey());
+  }
+
+  @Test
+  public void testZobristKeysRarelyCollide() {
+    // Every position met in many random games on a 5x5 board; two different
+    // boards with one key would be a collision
+    Map<Long, String> seen = new HashMap<Long, String>();
+    TicTacToeGame b = new TicTacToeGame(5, 5, 4);
+    SplittableRandom random = new SplittableRandom(12);
+    int collisions = 0;
+    for (int game = 0; game < 10000; game++) {
+      b.startNewGame();
+      while (b.stillRunning()) {
+        b.makeMove(b.randomAvailableCell(random));
+        String board = b.toString();
+        String before = seen.putIfAbsent(b.getZobristKey(), board);
+        if (before != null && !before.equals(board))
+          collisions++;
+      }
+    }
+    assertTrue(seen.size() > 100000);
+    assertEquals(0, collisions);
+  }
+
+  @Test
+  public void testObserversAreToldWhatChanged() {
+    TicTacToeGame b = new TicTacToeGame();
+    List<String> events = new ArrayList<String>();
+    b.addObserver(new OurObserver() {
+      public void update() {
+        events.add("update");
+      }
+
+      public void update(GameEvent event) {
+        events.add(event.toString());
+      }
+    });
+    int[] plainUpdates = new int[1];
+    b.addObserver(() -> plainUpdates[0]++);
+
+    b.setComputerPlayerStrategy(new StopperAI());
+    b.choose(0, 0);
+    b.choose(1, 1);
+    b.choose(0, 1);
+    b.choose(2, 2);
+    b.choose(0, 2);
+    b.startNewGame();
+    assertEquals(Arrays.asList("STRATEGY_CHANGED", "MOVE_MADE X at 0,0", "MOVE_MADE O at 1,1",
+        "MOVE_MADE X at 0,1", "MOVE_MADE O at 2,2", "MOVE_MADE X at 0,2", "GAME_OVER X", "GAME_RESET"), events);
+    // Observers that only know update() redraw once per move and once for
+    // the new game, as they did before there were events
+    assertEquals(6, plainUpdates[0]);
+  }
+
   @Test
   public void testUseUnusedMethodsAsIfSomeoneClickedOnTheGUI() {
     TicTacToeGame game = new TicTacToeGame();
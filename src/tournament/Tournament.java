@@ -0,0 +1,179 @@
+package tournament;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.LongFunction;
+
+import model.TicTacToeGame;
+import model.TicTacToeStrategy;
+
+/**
+ * Play a large number of games between two strategies on a ForkJoinPool.
+ *
+ * The games are split into shards. Each shard gets its own pair of
+ * strategies, built from the factories with the shard's seed, and one
+ * TicTacToeGame that it starts over for every game, so no state is shared
+ * between threads while the games are played. Every shard keeps its own
+ * counts, which are added up once all shards are done.
+ *
+ * The strategies take turns going first. Shard i splits a SplittableRandom
+ * seeded with seed + i once for each strategy, so no two strategies in a
+ * run get the same seed, even when both come from the same factory, and
+ * the run is repeatable for strategies that use the seed they are given.
+ *
+ * @author Alex
+ */
+public class Tournament {
+
+  private final LongFunction<TicTacToeStrategy> firstFactory;
+  private final LongFunction<TicTacToeStrategy> secondFactory;
+  private final int rows;
+  private final int cols;
+  private final int k;
+
+  /**
+   * @param first builds the first strategy from a seed, once per shard
+   * @param second builds the second strategy from a seed, once per shard
+   */
+  public Tournament(LongFunction<TicTacToeStrategy> first, LongFunction<TicTacToeStrategy> second) {
+    this(first, second, 3, 3, 3);
+  }
+
+  public Tournament(LongFunction<TicTacToeStrategy> first, LongFunction<TicTacToeStrategy> second,
+      int rows, int cols, int k) {
+    this.firstFactory = first;
+    this.secondFactory = second;
+    this.rows = rows;
+    this.cols = cols;
+    this.k = k;
+  }
+
+  /**
+   * Play games split into shards on a pool of the given parallelism
+   *
+   * @return the totals over every shard
+   */
+  public Result play(long games, int shards, int parallelism, long seed) {
+    if (games < 0 || shards < 1)
+      throw new IllegalArgumentException("Need a game count and at least one shard");
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      long start = System.nanoTime();
+      List<ForkJoinTask<Result>> tasks = new ArrayList<ForkJoinTask<Result>>();
+      long firstGame = 0;
+      for (int shard = 0; shard < shards; shard++) {
+        // Spread the remainder over the first shards
+        long count = games / shards + (shard < games % shards ? 1 : 0);
+        final long from = firstGame;
+        final long to = firstGame + count;
+        final long shardSeed = seed + shard;
+        tasks.add(pool.submit(() -> playShard(from, to, shardSeed)));
+        firstGame = to;
+      }
+      Result total = new Result();
+      for (ForkJoinTask<Result> task : tasks)
+        total.add(task.join());
+      total.nanos = System.nanoTime() - start;
+      return total;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Play on every available core, with a few shards per core
+   */
+  public Result play(long games, long seed) {
+    int cores = Runtime.getRuntime().availableProcessors();
+    return play(games, (int) Math.max(1, Math.min(games, 4L * cores)), cores, seed);
+  }
+
+  // Games from through to - 1; the first strategy plays X in the even ones
+  private Result playShard(long from, long to, long seed) {
+    SplittableRandom seeds = new SplittableRandom(seed);
+    TicTacToeStrategy first = firstFactory.apply(seeds.split().nextLong());
+    TicTacToeStrategy second = secondFactory.apply(seeds.split().nextLong());
+    TicTacToeGame game = new TicTacToeGame(rows, cols, k);
+    Result result = new Result();
+    for (long i = from; i < to; i++) {
+      boolean firstIsX = i % 2 == 0;
+      char winner = playOneGame(game, firstIsX ? first : second, firstIsX ? second : first);
+      if (winner == 'T')
+        result.ties++;
+      else if ((winner == 'X') == firstIsX)
+        result.firstWins++;
+      else
+        result.secondWins++;
+    }
+    return result;
+  }
+
+  /**
+   * Start game over and play it to the end
+   *
+   * @return 'X' or 'O' for the winner, 'T' for a tie
+   */
+  public static char playOneGame(TicTacToeGame game, TicTacToeStrategy x, TicTacToeStrategy o) {
+    game.startNewGame();
+    TicTacToeStrategy next = x;
+    while (game.stillRunning()) {
+      if (!game.choose(next.desiredCell(game)))
+        throw new IllegalStateException(next.getClass().getSimpleName() + " chose a square that is taken");
+      next = next == x ? o : x;
+    }
+    if (game.didWin('X'))
+      return 'X';
+    if (game.didWin('O'))
+      return 'O';
+    return 'T';
+  }
+
+  /**
+   * Win, loss and tie counts for a run, and how fast it went
+   */
+  public static class Result {
+    private long firstWins;
+    private long secondWins;
+    private long ties;
+    private long nanos;
+
+    private void add(Result other) {
+      firstWins += other.firstWins;
+      secondWins += other.secondWins;
+      ties += other.ties;
+    }
+
+    public long getFirstWins() {
+      return firstWins;
+    }
+
+    public long getSecondWins() {
+      return secondWins;
+    }
+
+    public long getTies() {
+      return ties;
+    }
+
+    public long getGames() {
+      return firstWins + secondWins + ties;
+    }
+
+    public long getNanos() {
+      return nanos;
+    }
+
+    public double getGamesPerSecond() {
+      return nanos == 0 ? 0 : getGames() * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d games: %d first wins, %d second wins, %d ties, %.0f games/sec",
+          getGames(), firstWins, secondWins, ties, getGamesPerSecond());
+    }
+  }
+}
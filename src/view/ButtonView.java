@@ -3,15 +3,15 @@ package view;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.GridLayout;
-import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
 import javax.swing.JButton;
 import javax.swing.JPanel;
 
+import controller.ComputerTurn;
+import controller.GameEvent;
 import controller.OurObserver;
-import model.ComputerPlayer;
 import model.TicTacToeGame;
 
 public class ButtonView extends JPanel implements OurObserver {
@@ -19,21 +19,26 @@ public class ButtonView extends JPanel implements OurObserver {
   private TicTacToeGame theGame;
   private JButton stateButton = new JButton("Click your move");
   private JButton[][] buttons = null;
-  private ComputerPlayer computerPlayer;
+  private ComputerTurn computerTurn;
   private int height, width;
   
   public ButtonView(TicTacToeGame TicTacToeGame, int width, int height) {
+    this(TicTacToeGame, new ComputerTurn(TicTacToeGame), width, height);
+  }
+  
+  // Views of the same game should share one ComputerTurn
+  public ButtonView(TicTacToeGame TicTacToeGame, ComputerTurn computerTurn, int width, int height) {
     theGame = TicTacToeGame;
     this.height = height;
     this.width = width;
-    computerPlayer = theGame.getComputerPlayer();
+    this.computerTurn = computerTurn;
     initializeButtonPanel();
   }
   
   
   // This method is called by OurObservable's notifyObservers()
   public void update() {
-    if (theGame.maxMovesRemaining() == theGame.size() * theGame.size())
+    if (theGame.maxMovesRemaining() == theGame.rows() * theGame.cols())
       resetButtons(true);
     
     if (!theGame.stillRunning())
@@ -43,16 +48,44 @@ public class ButtonView extends JPanel implements OurObserver {
       stateButton.setText("Click your move");
     }
   }
+
+  // Called instead of update() with what changed, so only the square that
+  // was taken needs to be touched
+  public void update(GameEvent event) {
+    switch (event.getType()) {
+    case MOVE_MADE:
+      JButton button = buttons[event.getRow()][event.getCol()];
+      button.setText("" + event.getPlayer());
+      button.setEnabled(false);
+      stateButton.setText("Click your move");
+      break;
+    case COMPUTER_THINKING:
+      stateButton.setText("Thinking...");
+      break;
+    case GAME_RESET:
+      resetButtons(true);
+      stateButton.setText("Click your move");
+      break;
+    case GAME_OVER:
+      setButtonsDisabled();
+      stateButton.setText(event.getResult() == 'T' ? "Tied" : event.getResult() + " wins");
+      break;
+    default:
+      break;
+    }
+  }
   
   private void initializeButtonPanel() {
     JPanel buttonPanel = new JPanel();
-    int size = theGame.size();
-    buttonPanel.setLayout(new GridLayout(size, size, 5, 5));
-    Font myFont = new Font("Arial", Font.TRUETYPE_FONT, 40);
+    int rows = theGame.rows();
+    int cols = theGame.cols();
+    buttonPanel.setLayout(new GridLayout(rows, cols, 5, 5));
+    // Shrink the marks so bigger boards still fit the panel
+    Font myFont = new Font("Arial", Font.TRUETYPE_FONT, Math.max(10, 120 / Math.max(rows, cols)));
     ButtonListener buttonListener = new ButtonListener();
-    buttons = new JButton[size][size];
-    for (int i = 0; i < size; i++) {
-      for (int j = 0; j < size; j++) {
+    buttons = new JButton[rows][cols];
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < cols; j++) {
         buttons[i][j] = new JButton();
         //        buttons[i][j].setSize(width / 3, height width / 3);
         buttons[i][j].setFont(myFont);
@@ -87,9 +120,15 @@ public class ButtonView extends JPanel implements OurObserver {
     }
   }
   
+  private void setButtonsDisabled() {
+    for (JButton[] row : buttons)
+      for (JButton button : row)
+        button.setEnabled(false);
+  }
+
   private void resetButtons(boolean enable) {
-    for (int i = 0; i < theGame.size(); i++) {
-      for (int j = 0; j < theGame.size(); j++) {
+    for (int i = 0; i < theGame.rows(); i++) {
+      for (int j = 0; j < theGame.cols(); j++) {
         buttons[i][j].setText("");
         buttons[i][j].setEnabled(enable);
       }
@@ -100,6 +139,9 @@ public class ButtonView extends JPanel implements OurObserver {
     
     @Override
     public void actionPerformed(ActionEvent arg0) {
+      // Wait for the computer player to take its turn
+      if (computerTurn.isThinking())
+        return;
       JButton buttonClicked = (JButton) arg0.getSource();
       for (int i = 0; i < buttons.length; i++) {
         for (int j = 0; j < buttons[i].length; j++) {
@@ -108,31 +150,12 @@ public class ButtonView extends JPanel implements OurObserver {
         }
       }
       
-      if (theGame.tied()) {
-        stateButton.setText("Tied");
-        updateButtons();
-      }
-      else if (theGame.didWin('X')) {
-        stateButton.setText("X wins");
-        updateButtons();
-      }
-      else {
-        // If the game is not over, let the computer player choose
-        // This algorithm assumes the computer player always
-        // goes after the human player and is represented by 'O', not 'X'
-        Point play = computerPlayer.desiredMove(theGame);
-        theGame.choose(play.x, play.y);
-        if (theGame.didWin('O')) {
-          stateButton.setText("O wins");
-          updateButtons();
-        }
-      }
+      // The GAME_OVER event shows who won. If the game is not over,
+      // let the computer player choose in the background. This algorithm
+      // assumes the computer player always goes after the human player
+      // and is represented by 'O', not 'X'
+      if (theGame.stillRunning())
+        computerTurn.start();
     }
-    
-//    private void setButtonsDisabled() {
-//      for (int i = 0; i < buttons.length; i++)
-//        for (int j = 0; j < buttons[i].length; j++)
-//          buttons[i][j].setEnabled(false);
-//    }
   }
 }
\ No newline at end of file
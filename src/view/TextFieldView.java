@@ -2,7 +2,6 @@ package view;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.GridLayout;
-import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
@@ -12,8 +11,9 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
 
+import controller.ComputerTurn;
+import controller.GameEvent;
 import controller.OurObserver;
-import model.ComputerPlayer;
 import model.TicTacToeGame;
 /*------------------------------------------------------
  * Class: TextAreaView
@@ -22,7 +22,7 @@ import model.TicTacToeGame;
  * Purpose: This class contains the method necessary to create a secondary
  * view to the TicTacToeGame. The initial view is the ButtonView. The class
  * utilizes JPanel and various JFrame objects to create a dynamic game board.
- * The game board size is not adjustable and is based of the initial size from ButtonView.java
+ * The game board takes its number of rows and columns from the game
  * 
  * NOTES: This class extends JPanel and implements OurObserver
  * -----------------------------------------------------*/
@@ -31,7 +31,7 @@ public class TextFieldView extends JPanel implements OurObserver {
   private TicTacToeGame theGame; // a TicTacToeGame object used by the methods
   private JButton stateButton = new JButton("Click your move"); // jbutton used for submitting player input
   private JTextField[][] labels = null; // the game board
-  private ComputerPlayer computerPlayer; // the computer AI object
+  private ComputerTurn computerTurn; // lets the computer AI move in the background
   private int height, width; // height and width of the board
   private int row, column;  // row and column parsed from input by user
   private JTextField rowInput; // the input from user 
@@ -45,11 +45,21 @@ public class TextFieldView extends JPanel implements OurObserver {
    * Parameters: a game object, the width of the JPanel and height of JPanel
    * -------------------------------------*/
   public TextFieldView(TicTacToeGame game, int width, int height)
+  {
+    this(game, new ComputerTurn(game), width, height);
+  } // textAreaView
+  
+  /*-------------------------------------
+   * Constructor: TextAreaView
+   * Purpose: The same, sharing computerTurn with the other views
+   * of the game
+   * -------------------------------------*/
+  public TextFieldView(TicTacToeGame game, ComputerTurn computerTurn, int width, int height)
   {
     theGame = game;
     this.height = height;
     this.width = width;
-    computerPlayer = game.getComputerPlayer();
+    this.computerTurn = computerTurn;
     initializeTextAreaPanel();
   } // textAreaView
   
@@ -62,7 +72,8 @@ public class TextFieldView extends JPanel implements OurObserver {
   private void initializeTextAreaPanel()
   {
     JPanel textPanel = new JPanel();
-    int size = theGame.size();   
+    int rows = theGame.rows();
+    int cols = theGame.cols();
     this.setLayout(null);
     textPanel.setLocation(0,0);
     textPanel.setSize(width,height);
@@ -101,16 +112,16 @@ public class TextFieldView extends JPanel implements OurObserver {
     JPanel board = new JPanel();
     board.setSize(175,175);
     board.setLocation(50,80);
-    board.setLayout(new GridLayout(3,3,0,0));
+    board.setLayout(new GridLayout(rows,cols,0,0));
     board.setBackground(Color.WHITE);
-    labels = new JTextField[size][size];
+    labels = new JTextField[rows][cols];
     
-    for (int i = 0; i < size; i++) {
-      for (int j = 0; j < size; j++) {
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < cols; j++) {
         labels[i][j] = new JTextField("_");
         labels[i][j].setBorder(null);
         labels[i][j].setHorizontalAlignment(JTextField.CENTER);
-        labels[i][j].setFont(new Font("Courier", Font.BOLD, 42));
+        labels[i][j].setFont(new Font("Courier", Font.BOLD, Math.max(8, 126 / Math.max(rows, cols))));
         //labels[i][j].setLocation((int)labels[i][j].size().getWidth()/2,(int)labels[i][j].size().getHeight()/2);
         board.add(labels[i][j]);
       }
@@ -159,6 +170,9 @@ public class TextFieldView extends JPanel implements OurObserver {
    * ------------------------------------*/
   private void setBoard(){ 
     
+    if (computerTurn.isThinking())
+      return;
+    
     String rowString = rowInput.getText();
     String colString = colInput.getText();
     
@@ -174,7 +188,7 @@ public class TextFieldView extends JPanel implements OurObserver {
       JOptionPane.showMessageDialog(null, "Invalid move");
     }
     
-    if (row < 0 || column < 0 || row >= theGame.size() || column >= theGame.size())
+    if (row < 0 || column < 0 || row >= theGame.rows() || column >= theGame.cols())
     {
       JOptionPane.showMessageDialog(null, "Invalid move");
       return;
@@ -187,26 +201,12 @@ public class TextFieldView extends JPanel implements OurObserver {
     }
     theGame.choose(row,column);
     
-    if (theGame.tied())
-    {
-      stateButton.setText("Tied");
-      status.setText("Tied");
-      update();
-    } else if (theGame.didWin('X')) {
-      stateButton.setText("X Wins");
-      status.setText("X Wins");
-      update();   
-    } else if (theGame.didWin('O')) {
-      stateButton.setText("O");
-      status.setText("O Wins");
-      update();
-    } else {
-      // If the game is not over, let the computer player choose
-      // This algorithm assumes the computer player always
-      // goes after the human player and is represented by 'O', not 'X'
-      Point play = computerPlayer.desiredMove(theGame);
-      theGame.choose(play.x, play.y);
-    }   
+    // The GAME_OVER event shows who won. If the game is not over, let the
+    // computer player choose in the background. This algorithm assumes the
+    // computer player always goes after the human player and is
+    // represented by 'O', not 'X'
+    if (theGame.stillRunning())
+      computerTurn.start();
   }
   
   /*------------------------------------------------
@@ -218,7 +218,7 @@ public class TextFieldView extends JPanel implements OurObserver {
    * ------------------------------------------------------------ */
   public void update() {
     
-    if (theGame.maxMovesRemaining() == theGame.size() * theGame.size())
+    if (theGame.maxMovesRemaining() == theGame.rows() * theGame.cols())
     {
       resetButtons();
     }
@@ -235,6 +235,38 @@ public class TextFieldView extends JPanel implements OurObserver {
   }
   
   
+  /*------------------------------------------------
+   * Method: update(GameEvent)
+   * Purpose: This method changes only what the event says changed:
+   * one label for a move, the status for the end of a game and the
+   * whole board only for a new game
+   * 
+   * NOTE: This method is called by OurObservable's notifyObservers(event)
+   * ------------------------------------------------------------ */
+  public void update(GameEvent event) {
+    switch (event.getType()) {
+    case MOVE_MADE:
+      labels[event.getRow()][event.getCol()].setText("" + event.getPlayer());
+      stateButton.setText("Click your move");
+      break;
+    case COMPUTER_THINKING:
+      stateButton.setText("Thinking...");
+      break;
+    case GAME_RESET:
+      resetButtons();
+      stateButton.setText("Click your move");
+      break;
+    case GAME_OVER:
+      String result = event.getResult() == 'T' ? "Tied" : event.getResult() + " Wins";
+      stateButton.setText(result);
+      status.setText(result);
+      stateButton.setEnabled(false);
+      break;
+    default:
+      break;
+    }
+  }
+  
   /*---------------------------------
    * Method: resetButtons()
    * Purpose: This method resets the game board to
@@ -242,8 +274,8 @@ public class TextFieldView extends JPanel implements OurObserver {
    * every label[][] to "_"
    * ----------------------------------*/
   private void resetButtons() {
-    for (int i = 0; i < theGame.size(); i++) {
-      for (int j = 0; j < theGame.size(); j++) {
+    for (int i = 0; i < theGame.rows(); i++) {
+      for (int j = 0; j < theGame.cols(); j++) {
         labels[i][j].setText("_");
       }
     }